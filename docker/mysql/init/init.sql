@@ -74,6 +74,18 @@ INSERT INTO `tb_product` (`name`, `title`, `description`, `brand`, `price`, `sto
 ('小米14 Ultra', '小米14 Ultra 16GB+512GB 黑色', '徕卡影像，骁龙8 Gen3，120W快充', '小米', 6499.00, 150, 0, 1),
 ('华为Mate 60 Pro', '华为Mate 60 Pro 12GB+512GB', '星闪通信，昆仑玻璃，北斗卫星消息', '华为', 6999.00, 80, 0, 1);
 
+DROP TABLE IF EXISTS `tb_product_stock_segment`;
+CREATE TABLE `tb_product_stock_segment` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `segment_no` int NOT NULL COMMENT '分段编号',
+  `stock` int NOT NULL DEFAULT '0' COMMENT '分段库存',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_product_segment` (`product_id`, `segment_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='热点商品分段库存表';
+
 -- ====================================
 -- 订单服务数据库
 -- ====================================
@@ -96,11 +108,103 @@ CREATE TABLE `tb_order` (
   `receiver` varchar(50) DEFAULT NULL COMMENT '收货人',
   `receiver_phone` varchar(11) DEFAULT NULL COMMENT '收货人电话',
   `remark` varchar(200) DEFAULT NULL COMMENT '备注',
-  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   `deleted` tinyint DEFAULT '0' COMMENT '逻辑删除：0-未删除 1-已删除',
+  PRIMARY KEY (`id`, `create_time`),
+  UNIQUE KEY `uk_order_no` (`order_no`, `create_time`),
+  KEY `idx_user_create` (`user_id`, `create_time`, `id`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表'
+-- 按创建时间月分区（唯一键需包含分区列），后续分区由订单服务的分区维护任务（始终开启）从 pmax 拆出，
+-- 已归档清空的分区由归档任务删除
+-- 已有库改为分区表：ALTER TABLE tb_order DROP PRIMARY KEY, ADD PRIMARY KEY (id, create_time),
+--   DROP INDEX uk_order_no, ADD UNIQUE KEY uk_order_no (order_no, create_time); 再执行下面的 PARTITION BY
+PARTITION BY RANGE COLUMNS (`create_time`) (
+  PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+  PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+  PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+  PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+-- 分区后 uk_order_no 只保证 (order_no, create_time) 唯一，订单号唯一由不分区的登记表保证：
+-- 所有写入 tb_order 的路径在同一事务中先登记订单号，重复时整个事务回滚。登记行不随归档删除（归档后订单号仍不能复用）
+-- 已有库补登记：INSERT IGNORE INTO tb_order_no (order_no) SELECT order_no FROM tb_order;
+--   INSERT IGNORE INTO tb_order_no (order_no) SELECT order_no FROM tb_order_archive;
+DROP TABLE IF EXISTS `tb_order_no`;
+CREATE TABLE `tb_order_no` (
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '登记时间',
+  PRIMARY KEY (`order_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单号登记表';
+
+DROP TABLE IF EXISTS `tb_order_item`;
+CREATE TABLE `tb_order_item` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `product_name` varchar(100) NOT NULL COMMENT '商品名称',
+  `product_price` decimal(10,2) NOT NULL COMMENT '商品单价',
+  `quantity` int NOT NULL COMMENT '购买数量',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '小计金额',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_order_no` (`order_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单明细表';
+
+DROP TABLE IF EXISTS `tb_order_archive`;
+CREATE TABLE `tb_order_archive` (
+  `id` bigint NOT NULL COMMENT '主键ID（与热表一致）',
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `user_id` bigint NOT NULL COMMENT '用户ID',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `product_name` varchar(100) NOT NULL COMMENT '商品名称',
+  `product_price` decimal(10,2) NOT NULL COMMENT '商品单价',
+  `quantity` int NOT NULL COMMENT '购买数量',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '订单总金额',
+  `status` tinyint DEFAULT '0' COMMENT '订单状态：1-已支付 2-已取消 3-已完成 4-已关闭',
+  `payment_method` tinyint DEFAULT NULL COMMENT '支付方式：1-支付宝 2-微信',
+  `payment_time` datetime DEFAULT NULL COMMENT '支付时间',
+  `address` varchar(200) DEFAULT NULL COMMENT '收货地址',
+  `receiver` varchar(50) DEFAULT NULL COMMENT '收货人',
+  `receiver_phone` varchar(11) DEFAULT NULL COMMENT '收货人电话',
+  `remark` varchar(200) DEFAULT NULL COMMENT '备注',
+  `create_time` datetime NOT NULL COMMENT '创建时间',
+  `update_time` datetime DEFAULT NULL COMMENT '更新时间',
+  `deleted` tinyint DEFAULT '0' COMMENT '逻辑删除：0-未删除 1-已删除',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_order_no` (`order_no`),
-  KEY `idx_user_id` (`user_id`),
-  KEY `idx_status` (`status`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
+  KEY `idx_user_create` (`user_id`, `create_time`, `id`),
+  KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 COMMENT='订单归档表';
+
+DROP TABLE IF EXISTS `tb_order_item_archive`;
+CREATE TABLE `tb_order_item_archive` (
+  `id` bigint NOT NULL COMMENT '主键ID（与热表一致）',
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `product_name` varchar(100) NOT NULL COMMENT '商品名称',
+  `product_price` decimal(10,2) NOT NULL COMMENT '商品单价',
+  `quantity` int NOT NULL COMMENT '购买数量',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '小计金额',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_order_no` (`order_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 COMMENT='订单明细归档表';
+
+DROP TABLE IF EXISTS `tb_order_outbox`;
+CREATE TABLE `tb_order_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `event_type` varchar(32) NOT NULL COMMENT '事件类型：ORDER_TIMEOUT-超时调度 STOCK_RELEASE-归还库存',
+  `aggregate_id` varchar(50) NOT NULL COMMENT '订单号',
+  `payload` text NOT NULL COMMENT '事件内容',
+  `retry_count` int NOT NULL DEFAULT 0 COMMENT '投递失败次数',
+  `next_retry_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次投递时间',
+  `parked` tinyint NOT NULL DEFAULT 0 COMMENT '是否停放：0-否 1-是（超过最大重试次数，不再投递）',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_parked_next_retry_time` (`parked`, `next_retry_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单发件箱表';
+-- 已有库：ALTER TABLE tb_order_outbox ADD COLUMN parked tinyint NOT NULL DEFAULT 0 AFTER next_retry_time,
+--   DROP INDEX idx_next_retry_time, ADD KEY idx_parked_next_retry_time (parked, next_retry_time);
+-- 停放事件排查处理后重新投递：UPDATE tb_order_outbox SET parked = 0, retry_count = 0 WHERE id = ?;
@@ -0,0 +1,189 @@
+package com.ecommerce.benchmark;
+
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.StockLineDTO;
+import com.ecommerce.common.result.Result;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品服务内部接口编解码基准
+ *
+ * 对比订单服务解码 /product/internal/batch 响应的三种方式：旧契约（完整商品JSON解码为Map）、
+ * 精简DTO的JSON、精简DTO的CBOR；以及批量预占/归还库存请求体（库存行列表）的JSON与CBOR编解码。
+ * ObjectMapper 与服务内一致由 Jackson2ObjectMapperBuilder 构建（CBOR 同 CborConfig）。
+ * 各编码的字节数由 main 在运行基准前按每个商品数打印一次，参数原样交给JMH命令行。
+ * 运行：mvn -pl ecommerce-benchmark -am package 后 java -jar target/benchmarks.jar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InternalCodecBenchmark {
+
+    private static final TypeReference<Result<List<Map<String, Object>>>> MAP_LIST_TYPE =
+            new TypeReference<Result<List<Map<String, Object>>>>() {
+            };
+
+    private static final TypeReference<Result<List<ProductBriefDTO>>> BRIEF_LIST_TYPE =
+            new TypeReference<Result<List<ProductBriefDTO>>>() {
+            };
+
+    private static final TypeReference<List<StockLineDTO>> STOCK_LINES_TYPE =
+            new TypeReference<List<StockLineDTO>>() {
+            };
+
+    /**
+     * 每次调用的商品数/库存行数（购物车结算一单通常不超过50个商品）
+     */
+    @Param({"1", "20", "50"})
+    private int size;
+
+    private ObjectMapper jsonMapper;
+
+    private ObjectMapper cborMapper;
+
+    private List<StockLineDTO> stockLines;
+
+    private byte[] legacyJson;
+
+    private byte[] briefJson;
+
+    private byte[] briefCbor;
+
+    private byte[] stockLinesJson;
+
+    private byte[] stockLinesCbor;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+        List<Map<String, Object>> products = new ArrayList<>(size);
+        List<ProductBriefDTO> briefs = new ArrayList<>(size);
+        stockLines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long id = 100000L + i;
+            products.add(fullProduct(id));
+            briefs.add(brief(id));
+            stockLines.add(new StockLineDTO(id, 1 + i % 3));
+        }
+
+        legacyJson = jsonMapper.writeValueAsBytes(Result.success(products));
+        briefJson = jsonMapper.writeValueAsBytes(Result.success(briefs));
+        briefCbor = cborMapper.writeValueAsBytes(Result.success(briefs));
+        stockLinesJson = jsonMapper.writeValueAsBytes(stockLines);
+        stockLinesCbor = cborMapper.writeValueAsBytes(stockLines);
+    }
+
+    @Benchmark
+    public Result<List<Map<String, Object>>> decodeLegacyJsonMap() throws IOException {
+        return jsonMapper.readValue(legacyJson, MAP_LIST_TYPE);
+    }
+
+    @Benchmark
+    public Result<List<ProductBriefDTO>> decodeBriefJson() throws IOException {
+        return jsonMapper.readValue(briefJson, BRIEF_LIST_TYPE);
+    }
+
+    @Benchmark
+    public Result<List<ProductBriefDTO>> decodeBriefCbor() throws IOException {
+        return cborMapper.readValue(briefCbor, BRIEF_LIST_TYPE);
+    }
+
+    @Benchmark
+    public byte[] encodeStockLinesJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(stockLines);
+    }
+
+    @Benchmark
+    public byte[] encodeStockLinesCbor() throws IOException {
+        return cborMapper.writeValueAsBytes(stockLines);
+    }
+
+    @Benchmark
+    public List<StockLineDTO> decodeStockLinesJson() throws IOException {
+        return jsonMapper.readValue(stockLinesJson, STOCK_LINES_TYPE);
+    }
+
+    @Benchmark
+    public List<StockLineDTO> decodeStockLinesCbor() throws IOException {
+        return cborMapper.readValue(stockLinesCbor, STOCK_LINES_TYPE);
+    }
+
+    /**
+     * 旧契约返回的完整商品（含描述、图片、时间等订单服务用不到的字段）
+     */
+    private static Map<String, Object> fullProduct(long id) {
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("id", id);
+        product.put("name", "商品" + id);
+        product.put("title", "商品" + id + " 限时优惠 官方正品");
+        product.put("description", "这是商品" + id + "的详细描述，包含规格、材质、售后说明等较长的文本内容。");
+        product.put("price", new BigDecimal("199.90"));
+        product.put("stock", 1000);
+        product.put("sales", 250);
+        product.put("categoryId", 12L);
+        product.put("brand", "品牌");
+        product.put("mainImage", "https://img.example.com/product/" + id + "/main.jpg");
+        product.put("images", "https://img.example.com/product/" + id + "/1.jpg,"
+                + "https://img.example.com/product/" + id + "/2.jpg");
+        product.put("status", 1);
+        product.put("createTime", LocalDateTime.of(2026, 1, 1, 10, 0).toString());
+        product.put("updateTime", LocalDateTime.of(2026, 6, 1, 10, 0).toString());
+        product.put("deleted", 0);
+        return product;
+    }
+
+    private static ProductBriefDTO brief(long id) {
+        ProductBriefDTO brief = new ProductBriefDTO();
+        brief.setId(id);
+        brief.setName("商品" + id);
+        brief.setPrice(new BigDecimal("199.90"));
+        brief.setStock(1000);
+        brief.setMainImage("https://img.example.com/product/" + id + "/main.jpg");
+        brief.setStatus(1);
+        return brief;
+    }
+
+    /**
+     * 打印各商品数下的编码字节数后运行JMH（benchmarks.jar 入口，也可在IDE中直接运行）
+     */
+    public static void main(String[] args) throws Exception {
+        for (String value : InternalCodecBenchmark.class.getDeclaredField("size").getAnnotation(Param.class).value()) {
+            InternalCodecBenchmark benchmark = new InternalCodecBenchmark();
+            benchmark.size = Integer.parseInt(value);
+            benchmark.setup();
+            System.out.printf("[size=%d] 商品响应字节数：旧契约JSON=%d 精简JSON=%d 精简CBOR=%d；库存行字节数：JSON=%d CBOR=%d%n",
+                    benchmark.size, benchmark.legacyJson.length, benchmark.briefJson.length,
+                    benchmark.briefCbor.length, benchmark.stockLinesJson.length, benchmark.stockLinesCbor.length);
+        }
+        Main.main(args);
+    }
+}
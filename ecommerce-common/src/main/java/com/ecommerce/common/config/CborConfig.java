@@ -0,0 +1,24 @@
+package com.ecommerce.common.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * CBOR 编解码配置
+ *
+ * 请求头 Accept: application/cbor 时以CBOR返回，否则仍为JSON；Feign解码同样使用该转换器
+ */
+@Configuration
+public class CborConfig {
+
+    /**
+     * 与JSON共用Spring Boot的Jackson配置（builder为原型作用域，可直接修改）
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -12,7 +12,16 @@ public class RedisKeyConstant {
     // 商品相关
     public static final String PRODUCT_INFO_PREFIX = "product:info:";
     public static final String PRODUCT_STOCK_PREFIX = "product:stock:";
+    public static final String PRODUCT_STOCK_SEGMENT_PREFIX = "product:stock:segment:";
     public static final String PRODUCT_SEARCH_PREFIX = "product:search:";
+    public static final String PRODUCT_STOCK_RELEASE_PREFIX = "product:stock:release:";
+    public static final String PRODUCT_LOAD_LOCK_PREFIX = "product:load:";
+
+    // 商品库存售罄/补货广播频道
+    public static final String PRODUCT_STOCK_CHANNEL = "channel:product:stock";
+
+    // 商品缓存失效广播频道
+    public static final String PRODUCT_CACHE_CHANNEL = "channel:product:cache";
     
     // 购物车
     public static final String CART_PREFIX = "cart:";
@@ -20,10 +29,22 @@ public class RedisKeyConstant {
     // 订单相关
     public static final String ORDER_PREFIX = "order:";
     public static final String ORDER_TIMEOUT_PREFIX = "order:timeout:";
+    public static final String ORDER_SHARD_MIGRATE_CHECKPOINT = "order:shard:migrate:checkpoint";
+    public static final String ORDER_HISTORY_PREFIX = "order:history:";
+    public static final String ORDER_HISTORY_SUMMARY_PREFIX = "order:history:summary:";
+    public static final String ORDER_HISTORY_BUILT_PREFIX = "order:history:built:";
+    public static final String ORDER_SALES_STATS_PREFIX = "order:stats:sales:";
+    public static final String ORDER_ARCHIVE_LOCK = "order:archive";
+
+    // 秒杀排队下单
+    public static final String FLASH_STOCK_PREFIX = "order:flash:stock:";
+    public static final String FLASH_PRODUCT_PREFIX = "order:flash:product:";
+    public static final String FLASH_RESULT_PREFIX = "order:flash:result:";
     
     // 分布式锁
     public static final String LOCK_STOCK_PREFIX = "lock:stock:";
     public static final String LOCK_ORDER_PREFIX = "lock:order:";
+    public static final String LOCK_STOCK_SEGMENT_PREFIX = "lock:stock:segment:";
     
     // 幂等性Token
     public static final String IDEMPOTENT_TOKEN_PREFIX = "idempotent:";
@@ -42,6 +63,62 @@ public class RedisKeyConstant {
         return LOCK_STOCK_PREFIX + productId;
     }
 
+    /**
+     * 构建商品缓存回源互斥锁Key
+     */
+    public static String buildProductLoadLockKey(Long productId) {
+        return PRODUCT_LOAD_LOCK_PREFIX + productId;
+    }
+
+    /**
+     * 构建商品库存Key
+     */
+    public static String buildStockKey(Long productId) {
+        return PRODUCT_STOCK_PREFIX + productId;
+    }
+
+    /**
+     * 构建商品分段库存Key
+     */
+    public static String buildStockSegmentKey(Long productId, int segmentNo) {
+        return PRODUCT_STOCK_SEGMENT_PREFIX + productId + ":" + segmentNo;
+    }
+
+    /**
+     * 构建订单缓存Key
+     */
+    public static String buildOrderKey(String orderNo) {
+        return ORDER_PREFIX + orderNo;
+    }
+
+    /**
+     * 构建用户订单列表Key（有序集合，按下单时间排序的订单号）
+     */
+    public static String buildOrderHistoryKey(Long userId) {
+        return ORDER_HISTORY_PREFIX + userId;
+    }
+
+    /**
+     * 构建用户订单摘要Key（哈希，订单号 -> 订单摘要）
+     */
+    public static String buildOrderHistorySummaryKey(Long userId) {
+        return ORDER_HISTORY_SUMMARY_PREFIX + userId;
+    }
+
+    /**
+     * 构建用户订单列表已构建标记Key
+     */
+    public static String buildOrderHistoryBuiltKey(Long userId) {
+        return ORDER_HISTORY_BUILT_PREFIX + userId;
+    }
+
+    /**
+     * 构建销售统计快照Key（按分钟）
+     */
+    public static String buildSalesStatsKey(long minute) {
+        return ORDER_SALES_STATS_PREFIX + minute;
+    }
+
     /**
      * 构建购物车Key
      */
@@ -0,0 +1,29 @@
+package com.ecommerce.common.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * 商品摘要DTO（商品服务内部接口返回，只包含订单服务需要的字段）
+ */
+@Data
+public class ProductBriefDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String name;
+
+    private BigDecimal price;
+
+    private Integer stock;
+
+    private String mainImage;
+
+    /**
+     * 商品状态：0-下架 1-上架
+     */
+    private Integer status;
+}
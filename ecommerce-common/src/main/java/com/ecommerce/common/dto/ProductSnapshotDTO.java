@@ -0,0 +1,33 @@
+package com.ecommerce.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * 商品快照DTO（服务间调用，下单所需的商品信息）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSnapshotDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称
+     */
+    private String name;
+
+    /**
+     * 商品单价
+     */
+    private BigDecimal price;
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 库存行DTO（服务间调用，批量预占/归还库存）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLineDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 数量
+     */
+    private Integer quantity;
+}
@@ -33,6 +33,7 @@ public enum ResultCode {
     ORDER_NOT_EXIST(3001, "订单不存在"),
     ORDER_STATUS_ERROR(3002, "订单状态异常"),
     ORDER_CANCEL_FAIL(3003, "订单取消失败"),
+    FLASH_SALE_NOT_OPEN(3004, "商品未开启秒杀"),
     
     // 分布式锁相关
     ACQUIRE_LOCK_FAIL(4001, "获取锁失败"),
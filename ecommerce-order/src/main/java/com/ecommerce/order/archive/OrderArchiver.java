@@ -0,0 +1,279 @@
+package com.ecommerce.order.archive;
+
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.utils.RedisLockUtil;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.mapper.OrderArchiveMapper;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单归档与分区维护
+ *
+ * tb_order 按 create_time 月分区（p年月 + pmax）。分区维护任务始终开启（启动时立即执行一次），逐个分库从 pmax
+ * 拆出未来几个月的分区；归档任务（order.archive.enabled）逐个分库：
+ * 1. 把创建时间超过保留天数的非待支付订单（已支付/已取消/已完成/已关闭）和已逻辑删除的订单连同明细分批移入压缩归档表；
+ * 2. 删除截止时间之前已清空的月分区。
+ * 热表只保留最近的订单和待支付订单，查询订单时热表未命中再查归档表。两个任务共用Redis锁，多实例只有一个实例执行
+ */
+@Slf4j
+@Component
+public class OrderArchiver {
+
+    private static final DateTimeFormatter PARTITION_FORMATTER = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String MAX_PARTITION = "pmax";
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisLockUtil redisLockUtil;
+
+    /**
+     * 是否开启定时归档
+     */
+    @Value("${order.archive.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 热表保留天数
+     */
+    @Value("${order.archive.retention-days:180}")
+    private int retentionDays;
+
+    /**
+     * 每批归档的订单数（一个事务）
+     */
+    @Value("${order.archive.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 执行间隔（分钟）
+     */
+    @Value("${order.archive.interval-minutes:60}")
+    private long intervalMinutes;
+
+    /**
+     * 预建分区的月数
+     */
+    @Value("${order.archive.ahead-months:3}")
+    private int aheadMonths;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong archived = new AtomicLong();
+
+    private volatile LocalDateTime lastRunTime;
+
+    private volatile String lastError;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::maintainPartitions, 0, intervalMinutes, TimeUnit.MINUTES);
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::archive, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+            log.info("订单归档启动：保留{}天，间隔{}分钟", retentionDays, intervalMinutes);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 立即执行一次（后台执行）
+     * @return 已在执行时返回false
+     */
+    public boolean trigger() {
+        if (running.get()) {
+            return false;
+        }
+        executor.execute(this::archive);
+        return true;
+    }
+
+    /**
+     * 最近一次执行情况
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", running.get());
+        progress.put("lastRunTime", lastRunTime);
+        progress.put("archived", archived.get());
+        progress.put("error", lastError);
+        return progress;
+    }
+
+    private void archive() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        String lockValue = redisLockUtil.tryLock(RedisKeyConstant.ORDER_ARCHIVE_LOCK,
+                TimeUnit.MINUTES.toSeconds(intervalMinutes));
+        if (lockValue == null) {
+            running.set(false);
+            return;
+        }
+        try {
+            lastRunTime = LocalDateTime.now();
+            lastError = null;
+            archived.set(0);
+            LocalDateTime cutoff = lastRunTime.minusDays(retentionDays);
+            for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+                int current = shard;
+                orderShardRouter.run(current, () -> {
+                    long count = archiveBefore(cutoff);
+                    archived.addAndGet(count);
+                    dropEmptyPartitions(cutoff);
+                    log.info("订单归档完成：分库{}，截止{}，归档{}条", current, cutoff, count);
+                });
+            }
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("订单归档失败", e);
+        } finally {
+            redisLockUtil.unlock(RedisKeyConstant.ORDER_ARCHIVE_LOCK, lockValue);
+            running.set(false);
+        }
+    }
+
+    /**
+     * 逐个分库预建分区（与归档共用锁，归档执行中时跳过本次）
+     */
+    private void maintainPartitions() {
+        String lockValue = null;
+        try {
+            lockValue = redisLockUtil.tryLock(RedisKeyConstant.ORDER_ARCHIVE_LOCK,
+                    TimeUnit.MINUTES.toSeconds(intervalMinutes));
+            if (lockValue == null) {
+                return;
+            }
+            for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+                orderShardRouter.run(shard, this::createPartitions);
+            }
+        } catch (Exception e) {
+            log.error("订单表分区维护失败", e);
+        } finally {
+            if (lockValue != null) {
+                redisLockUtil.unlock(RedisKeyConstant.ORDER_ARCHIVE_LOCK, lockValue);
+            }
+        }
+    }
+
+    /**
+     * 分批移入归档表：复制订单和明细、删除热表数据在同一事务中提交
+     */
+    private long archiveBefore(LocalDateTime cutoff) {
+        long total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Order> orders = orderArchiveMapper.selectArchivable(cutoff, batchSize);
+                if (orders.isEmpty()) {
+                    return 0;
+                }
+                List<Long> ids = new ArrayList<>(orders.size());
+                List<String> orderNos = new ArrayList<>(orders.size());
+                for (Order order : orders) {
+                    ids.add(order.getId());
+                    orderNos.add(order.getOrderNo());
+                }
+                orderArchiveMapper.copyOrders(cutoff, ids);
+                orderArchiveMapper.copyItems(orderNos);
+                orderArchiveMapper.deleteItems(orderNos);
+                orderArchiveMapper.deleteOrders(cutoff, ids);
+                return orders.size();
+            });
+            total += count == null ? 0 : count;
+            if (count == null || count < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 从 pmax 依次拆出当前月到未来几个月的分区（表未分区时跳过）
+     */
+    private void createPartitions() {
+        List<String> partitions = orderArchiveMapper.selectPartitionNames();
+        if (!partitions.contains(MAX_PARTITION)) {
+            return;
+        }
+        YearMonth last = null;
+        for (String partition : partitions) {
+            YearMonth month = monthOf(partition);
+            if (month != null && (last == null || month.isAfter(last))) {
+                last = month;
+            }
+        }
+        YearMonth target = YearMonth.now().plusMonths(aheadMonths);
+        YearMonth month = last == null ? YearMonth.now() : last.plusMonths(1);
+        for (; !month.isAfter(target); month = month.plusMonths(1)) {
+            String partition = PARTITION_FORMATTER.format(month.atDay(1));
+            orderArchiveMapper.addPartition(partition, month.plusMonths(1).atDay(1).toString());
+            log.info("订单表新增分区：{}", partition);
+        }
+    }
+
+    /**
+     * 删除截止时间之前已清空的月分区（仍有待支付订单的分区保留）
+     */
+    private void dropEmptyPartitions(LocalDateTime cutoff) {
+        for (String partition : orderArchiveMapper.selectPartitionNames()) {
+            YearMonth month = monthOf(partition);
+            if (month == null || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                continue;
+            }
+            if (orderArchiveMapper.countPartitionRows(partition) == 0) {
+                orderArchiveMapper.dropPartition(partition);
+                log.info("订单表删除已归档分区：{}", partition);
+            }
+        }
+    }
+
+    /**
+     * 分区名对应的月份（p年月），其他分区返回null
+     */
+    private static YearMonth monthOf(String partition) {
+        try {
+            return YearMonth.from(LocalDate.parse(partition + "01", DateTimeFormatter.ofPattern("'p'yyyyMMdd")));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
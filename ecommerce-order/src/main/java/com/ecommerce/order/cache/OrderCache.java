@@ -0,0 +1,160 @@
+package com.ecommerce.order.cache;
+
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.utils.TransactionUtil;
+import com.ecommerce.order.entity.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 订单二级缓存（L1本地 + L2 Redis order:{订单号}）
+ *
+ * 读未命中时回源并以SET NX回填L2，状态变更在事务提交后以SET覆盖L2：回填永远不会覆盖变更写入，
+ * 支付成功后的轮询不会读到旧状态。L1只保存已离开待支付状态的订单（不会再被其他实例改为其他状态），
+ * 因此无需跨实例失效；终态订单在L2中保留更久
+ */
+@Slf4j
+@Component
+public class OrderCache {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * L1最大订单数
+     */
+    @Value("${order.cache.local-size:10000}")
+    private long localSize;
+
+    /**
+     * L1过期时间（秒）
+     */
+    @Value("${order.cache.local-ttl:60}")
+    private long localTtl;
+
+    /**
+     * 待支付/已支付订单的L2过期时间（秒）
+     */
+    @Value("${order.cache.ttl:300}")
+    private long ttl;
+
+    /**
+     * 终态订单（已取消/已完成/已关闭）的L2过期时间（秒）
+     */
+    @Value("${order.cache.terminal-ttl:86400}")
+    private long terminalTtl;
+
+    private Cache<String, Order> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(localTtl, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "order.local");
+    }
+
+    /**
+     * 读取订单：L1 -> L2 -> 回源（回源结果为空时不缓存，排队订单可能稍后落库）
+     */
+    public Order get(String orderNo, Function<String, Order> loader) {
+        Order order = localCache.getIfPresent(orderNo);
+        if (order != null) {
+            return order;
+        }
+
+        String key = RedisKeyConstant.buildOrderKey(orderNo);
+        order = (Order) redisTemplate.opsForValue().get(key);
+        if (order == null) {
+            order = loader.apply(orderNo);
+            if (order == null) {
+                return null;
+            }
+            // 只在不存在时回填，避免覆盖并发的状态变更
+            redisTemplate.opsForValue().setIfAbsent(key, order, ttlOf(order), TimeUnit.SECONDS);
+        }
+        if (order.getStatus() != 0) {
+            localCache.put(orderNo, order);
+        }
+        return order;
+    }
+
+    /**
+     * 写入新订单或状态变更后的订单（当前有事务时在提交后写入）
+     */
+    public void put(Order order) {
+        putAll(Collections.singletonList(order));
+    }
+
+    /**
+     * 批量写入状态变更后的订单（管道批量写入，当前有事务时在提交后写入）
+     */
+    public void putAll(Collection<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Order> snapshot = new ArrayList<>(orders);
+        TransactionUtil.afterCommit(() -> {
+            try {
+                redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                        for (Order order : snapshot) {
+                            ops.opsForValue().set(RedisKeyConstant.buildOrderKey(order.getOrderNo()), order,
+                                    ttlOf(order), TimeUnit.SECONDS);
+                        }
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                // 写入失败时删除旧值，下次读取回源
+                log.warn("写入订单缓存失败，删除缓存：{}条，{}", snapshot.size(), e.getMessage());
+                evict(snapshot);
+            }
+            for (Order order : snapshot) {
+                localCache.invalidate(order.getOrderNo());
+            }
+        });
+    }
+
+    private void evict(List<Order> orders) {
+        List<String> keys = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            keys.add(RedisKeyConstant.buildOrderKey(order.getOrderNo()));
+        }
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.error("删除订单缓存失败：{}", keys, e);
+        }
+    }
+
+    private long ttlOf(Order order) {
+        int status = order.getStatus() == null ? 0 : order.getStatus();
+        return status >= 2 ? terminalTtl : ttl;
+    }
+}
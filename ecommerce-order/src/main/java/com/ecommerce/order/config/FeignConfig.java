@@ -0,0 +1,51 @@
+package com.ecommerce.order.config;
+
+import feign.RequestInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import okhttp3.ConnectionPool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Feign 配置
+ */
+@Configuration
+public class FeignConfig {
+
+    private static final String CBOR_ACCEPT = "application/cbor, application/json;q=0.9";
+
+    /**
+     * 内部接口编码：json（默认） cbor-通过Accept协商CBOR，服务端不支持时回退JSON
+     */
+    @Value("${order.feign.internal-codec:json}")
+    private String internalCodec;
+
+    @Bean
+    public RequestInterceptor internalCodecInterceptor() {
+        return template -> {
+            if ("cbor".equalsIgnoreCase(internalCodec) && template.path().contains("/internal/")) {
+                template.removeHeader(HttpHeaders.ACCEPT);
+                template.header(HttpHeaders.ACCEPT, CBOR_ACCEPT);
+            }
+        };
+    }
+
+    /**
+     * OkHttp连接池指标：feign.okhttp.pool.connections / feign.okhttp.pool.idle
+     */
+    @Bean
+    public MeterBinder okHttpConnectionPoolMetrics(ObjectProvider<ConnectionPool> connectionPool) {
+        return registry -> connectionPool.ifAvailable(pool -> {
+            Gauge.builder("feign.okhttp.pool.connections", pool, ConnectionPool::connectionCount)
+                    .description("OkHttp连接池连接总数")
+                    .register(registry);
+            Gauge.builder("feign.okhttp.pool.idle", pool, ConnectionPool::idleConnectionCount)
+                    .description("OkHttp连接池空闲连接数")
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.common.result.Result;
+import com.ecommerce.common.utils.JwtUtil;
+import com.ecommerce.order.dto.CartCheckoutDTO;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.service.CartService;
+import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.vo.CartItemVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 购物车控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/order/cart")
+@Api(tags = "购物车")
+public class CartController {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    /**
+     * 查询购物车
+     */
+    @GetMapping
+    @ApiOperation("查询购物车")
+    public Result<List<CartItemVO>> getCart(@RequestHeader("Authorization") String token) {
+        Long userId = JwtUtil.getUserId(token);
+        return Result.success(cartService.getCart(userId));
+    }
+
+    /**
+     * 加入购物车
+     */
+    @PostMapping("/{productId}/{quantity}")
+    @ApiOperation("加入购物车")
+    public Result<Void> addItem(
+            @RequestHeader("Authorization") String token,
+            @PathVariable Long productId,
+            @PathVariable Integer quantity) {
+        Long userId = JwtUtil.getUserId(token);
+        cartService.addItem(userId, productId, quantity);
+        return Result.success();
+    }
+
+    /**
+     * 修改购物车商品数量
+     */
+    @PutMapping("/{productId}/{quantity}")
+    @ApiOperation("修改购物车商品数量")
+    public Result<Void> updateItem(
+            @RequestHeader("Authorization") String token,
+            @PathVariable Long productId,
+            @PathVariable Integer quantity) {
+        Long userId = JwtUtil.getUserId(token);
+        cartService.updateItem(userId, productId, quantity);
+        return Result.success();
+    }
+
+    /**
+     * 移除购物车商品
+     */
+    @DeleteMapping("/{productId}")
+    @ApiOperation("移除购物车商品")
+    public Result<Void> removeItem(
+            @RequestHeader("Authorization") String token,
+            @PathVariable Long productId) {
+        Long userId = JwtUtil.getUserId(token);
+        cartService.removeItems(userId, Collections.singletonList(productId));
+        return Result.success();
+    }
+
+    /**
+     * 购物车结算（多商品一次下单）
+     */
+    @PostMapping("/checkout")
+    @ApiOperation("购物车结算")
+    public Result<Order> checkout(
+            @RequestHeader("Authorization") String token,
+            @Validated @RequestBody CartCheckoutDTO checkoutDTO) {
+        Long userId = JwtUtil.getUserId(token);
+        Order order = orderService.createCartOrder(userId, checkoutDTO);
+        return Result.success(order);
+    }
+}
@@ -0,0 +1,208 @@
+package com.ecommerce.order.controller;
+
+import cn.hutool.core.util.StrUtil;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.common.result.Result;
+import com.ecommerce.common.utils.JwtUtil;
+import com.ecommerce.order.archive.OrderArchiver;
+import com.ecommerce.order.export.OrderExporter;
+import com.ecommerce.order.projection.OrderHistoryRebuilder;
+import com.ecommerce.order.service.FlashOrderService;
+import com.ecommerce.order.sharding.OrderShardMigrator;
+import com.ecommerce.order.stats.SalesAggregator;
+import com.ecommerce.order.vo.SalesStatsVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * 订单运营管理控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/order/admin")
+@Api(tags = "订单运营管理")
+public class OrderAdminController {
+
+    @Autowired
+    private FlashOrderService flashOrderService;
+
+    @Autowired
+    private OrderShardMigrator orderShardMigrator;
+
+    @Autowired
+    private OrderHistoryRebuilder orderHistoryRebuilder;
+
+    @Autowired
+    private SalesAggregator salesAggregator;
+
+    @Autowired
+    private OrderExporter orderExporter;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    /**
+     * 管理员用户ID（逗号分隔）
+     */
+    @Value("${order.admin.user-ids:}")
+    private String adminUserIds;
+
+    /**
+     * 预热秒杀库存
+     */
+    @PostMapping("/flash-stock/{productId}/{quantity}")
+    @ApiOperation("预热秒杀库存")
+    public Result<Void> preloadFlashStock(
+            @RequestHeader("Authorization") String token,
+            @PathVariable Long productId,
+            @PathVariable Integer quantity) {
+        checkAdmin(token);
+        flashOrderService.preloadStock(productId, quantity);
+        return Result.success("预热成功", null);
+    }
+
+    /**
+     * 结束秒杀，归还剩余库存
+     */
+    @DeleteMapping("/flash-stock/{productId}")
+    @ApiOperation("结束秒杀")
+    public Result<Long> releaseFlashStock(
+            @RequestHeader("Authorization") String token,
+            @PathVariable Long productId) {
+        checkAdmin(token);
+        long quantity = flashOrderService.releaseStock(productId);
+        return Result.success(quantity);
+    }
+
+    /**
+     * 启动订单分库迁移（后台执行，可重复执行）
+     */
+    @PostMapping("/sharding/migrate")
+    @ApiOperation("启动订单分库迁移")
+    public Result<Boolean> startShardMigration(@RequestHeader("Authorization") String token) {
+        checkAdmin(token);
+        return Result.success(orderShardMigrator.start());
+    }
+
+    /**
+     * 查询订单分库迁移进度
+     */
+    @GetMapping("/sharding/migrate")
+    @ApiOperation("查询订单分库迁移进度")
+    public Result<Map<String, Object>> getShardMigration(@RequestHeader("Authorization") String token) {
+        checkAdmin(token);
+        return Result.success(orderShardMigrator.getProgress());
+    }
+
+    /**
+     * 启动用户订单列表全量重建（后台执行，可重复执行）
+     */
+    @PostMapping("/history/rebuild")
+    @ApiOperation("启动用户订单列表全量重建")
+    public Result<Boolean> startHistoryRebuild(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "false") Boolean force) {
+        checkAdmin(token);
+        return Result.success(orderHistoryRebuilder.start(force));
+    }
+
+    /**
+     * 查询用户订单列表全量重建进度
+     */
+    @GetMapping("/history/rebuild")
+    @ApiOperation("查询用户订单列表全量重建进度")
+    public Result<Map<String, Object>> getHistoryRebuild(@RequestHeader("Authorization") String token) {
+        checkAdmin(token);
+        return Result.success(orderHistoryRebuilder.getProgress());
+    }
+
+    /**
+     * 实时销售统计（合并各实例的内存统计，不访问数据库）
+     */
+    @GetMapping("/stats/sales")
+    @ApiOperation("实时销售统计")
+    public Result<SalesStatsVO> getSalesStats(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "5m") String window,
+            @RequestParam(defaultValue = "10") Integer top) {
+        checkAdmin(token);
+        return Result.success(salesAggregator.getStats(window, top));
+    }
+
+    /**
+     * 流式导出订单（CSV/NDJSON，可选gzip），按创建时间范围和状态过滤，边查询边写出
+     */
+    @GetMapping("/export")
+    @ApiOperation("导出订单")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestHeader("Authorization") String token,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(defaultValue = OrderExporter.FORMAT_CSV) String format,
+            @RequestParam(defaultValue = "true") Boolean gzip) {
+        checkAdmin(token);
+        if (!from.isBefore(to)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "导出时间范围无效");
+        }
+        boolean ndjson = OrderExporter.FORMAT_NDJSON.equalsIgnoreCase(format);
+        if (!ndjson && !OrderExporter.FORMAT_CSV.equalsIgnoreCase(format)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "导出格式只支持csv、ndjson");
+        }
+
+        orderExporter.acquire();
+        String filename = "orders-" + DateTimeFormatter.ofPattern("yyyyMMddHHmmss").format(LocalDateTime.now())
+                + (ndjson ? ".ndjson" : ".csv") + (gzip ? ".gz" : "");
+        String contentType = gzip ? "application/gzip"
+                : ndjson ? "application/x-ndjson;charset=UTF-8" : "text/csv;charset=UTF-8";
+        StreamingResponseBody body = out -> orderExporter.export(out, format, gzip, status, from, to);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .contentType(MediaType.parseMediaType(contentType))
+                .body(body);
+    }
+
+    /**
+     * 立即执行一次订单归档（后台执行）
+     */
+    @PostMapping("/archive")
+    @ApiOperation("执行订单归档")
+    public Result<Boolean> startArchive(@RequestHeader("Authorization") String token) {
+        checkAdmin(token);
+        return Result.success(orderArchiver.trigger());
+    }
+
+    /**
+     * 查询最近一次订单归档情况
+     */
+    @GetMapping("/archive")
+    @ApiOperation("查询订单归档情况")
+    public Result<Map<String, Object>> getArchive(@RequestHeader("Authorization") String token) {
+        checkAdmin(token);
+        return Result.success(orderArchiver.getProgress());
+    }
+
+    /**
+     * 校验管理员权限
+     */
+    private void checkAdmin(String token) {
+        String userId = String.valueOf(JwtUtil.getUserId(token));
+        if (!StrUtil.split(adminUserIds, ',', true, true).contains(userId)) {
+            throw new BusinessException(ResultCode.FORBIDDEN);
+        }
+    }
+}
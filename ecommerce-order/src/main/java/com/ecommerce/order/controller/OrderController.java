@@ -4,8 +4,12 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ecommerce.common.result.Result;
 import com.ecommerce.common.utils.JwtUtil;
 import com.ecommerce.order.dto.CreateOrderDTO;
+import com.ecommerce.order.dto.PaymentNotifyDTO;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.service.FlashOrderService;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.vo.CursorPageVO;
+import com.ecommerce.order.vo.OrderTicketVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +17,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 订单控制器
  */
@@ -25,6 +31,9 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private FlashOrderService flashOrderService;
+
     /**
      * 生成幂等性Token
      */
@@ -49,6 +58,29 @@ public class OrderController {
         return Result.success(order);
     }
 
+    /**
+     * 秒杀排队下单（立即返回订单号，订单异步落库）
+     */
+    @PostMapping("/flash/create")
+    @ApiOperation("秒杀排队下单")
+    public Result<OrderTicketVO> createQueuedOrder(
+            @RequestHeader("Authorization") String token,
+            @Validated @RequestBody CreateOrderDTO createOrderDTO) {
+        Long userId = JwtUtil.getUserId(token);
+        OrderTicketVO ticket = flashOrderService.createQueuedOrder(userId, createOrderDTO);
+        return Result.success(ticket);
+    }
+
+    /**
+     * 查询排队下单结果
+     */
+    @GetMapping("/flash/result/{orderNo}")
+    @ApiOperation("查询排队下单结果")
+    public Result<OrderTicketVO> getQueuedResult(@PathVariable String orderNo) {
+        OrderTicketVO ticket = flashOrderService.getQueuedResult(orderNo);
+        return Result.success(ticket);
+    }
+
     /**
      * 支付订单
      */
@@ -59,6 +91,16 @@ public class OrderController {
         return result ? Result.success("支付成功", null) : Result.error("支付失败");
     }
 
+    /**
+     * 批量支付回调（对账补单等批量通知一次处理）
+     */
+    @PostMapping("/pay/callback/batch")
+    @ApiOperation("批量支付回调")
+    public Result<Integer> payOrders(@RequestBody List<PaymentNotifyDTO> notifies) {
+        int paid = orderService.payOrders(notifies);
+        return Result.success(paid);
+    }
+
     /**
      * 取消订单
      */
@@ -75,7 +117,7 @@ public class OrderController {
     @GetMapping("/{orderNo}")
     @ApiOperation("查询订单详情")
     public Result<Order> getOrder(@PathVariable String orderNo) {
-        Order order = orderService.getOrderByOrderNo(orderNo);
+        Order order = orderService.getOrderDetail(orderNo);
         return Result.success(order);
     }
 
@@ -92,4 +134,19 @@ public class OrderController {
         Page<Order> page = orderService.getUserOrders(userId, pageNum, pageSize);
         return Result.success(page);
     }
+
+    /**
+     * 游标分页查询我的订单（不统计总数时不执行COUNT）
+     */
+    @GetMapping("/my-orders/cursor")
+    @ApiOperation("游标分页查询我的订单")
+    public Result<CursorPageVO<Order>> getMyOrdersByCursor(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(defaultValue = "false") Boolean withTotal) {
+        Long userId = JwtUtil.getUserId(token);
+        CursorPageVO<Order> page = orderService.getUserOrdersByCursor(userId, cursor, pageSize, withTotal);
+        return Result.success(page);
+    }
 }
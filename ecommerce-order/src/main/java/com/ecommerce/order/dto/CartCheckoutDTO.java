@@ -0,0 +1,34 @@
+package com.ecommerce.order.dto;
+
+import lombok.Data;
+import javax.validation.constraints.NotBlank;
+import java.util.List;
+
+/**
+ * 购物车结算DTO
+ */
+@Data
+public class CartCheckoutDTO {
+
+    /**
+     * 结算的商品ID（为空则结算整个购物车）
+     */
+    private List<Long> productIds;
+
+    @NotBlank(message = "收货地址不能为空")
+    private String address;
+
+    @NotBlank(message = "收货人不能为空")
+    private String receiver;
+
+    @NotBlank(message = "收货人电话不能为空")
+    private String receiverPhone;
+
+    private String remark;
+
+    /**
+     * 幂等性Token
+     */
+    @NotBlank(message = "幂等性Token不能为空")
+    private String idempotentToken;
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.order.dto;
+
+import lombok.Data;
+import javax.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
+
+/**
+ * 支付回调通知DTO
+ */
+@Data
+public class PaymentNotifyDTO {
+
+    @NotBlank(message = "订单号不能为空")
+    private String orderNo;
+
+    /**
+     * 支付方式：1-支付宝 2-微信
+     */
+    private Integer paymentMethod;
+
+    /**
+     * 支付时间（为空则取处理时间）
+     */
+    private LocalDateTime paymentTime;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 订单实体
@@ -104,4 +105,10 @@ public class Order implements Serializable {
      */
     @TableLogic
     private Integer deleted;
+
+    /**
+     * 订单明细（购物车多商品订单）
+     */
+    @TableField(exist = false)
+    private List<OrderItem> items;
 }
@@ -0,0 +1,64 @@
+package com.ecommerce.order.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 订单发件箱实体（与订单在同一事务中写入，由中继投递）
+ */
+@Data
+@TableName("tb_order_outbox")
+public class OrderOutbox implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 超时调度事件，内容为到期时间戳（毫秒）
+     */
+    public static final String EVENT_ORDER_TIMEOUT = "ORDER_TIMEOUT";
+
+    /**
+     * 归还库存事件，内容为库存行JSON
+     */
+    public static final String EVENT_STOCK_RELEASE = "STOCK_RELEASE";
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 事件类型
+     */
+    private String eventType;
+
+    /**
+     * 订单号（批量取消的归还事件为批内首个订单号）
+     */
+    private String aggregateId;
+
+    /**
+     * 事件内容
+     */
+    private String payload;
+
+    /**
+     * 投递失败次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次投递时间
+     */
+    private LocalDateTime nextRetryTime;
+
+    /**
+     * 是否停放：0-否 1-是（超过最大重试次数）
+     */
+    private Integer parked;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.order.event;
+
+import com.ecommerce.order.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 订单变更事件（创建/支付/取消，按订单当前状态区分），在事务提交后投递给监听者
+ */
+@Getter
+@AllArgsConstructor
+public class OrderChangedEvent {
+
+    /**
+     * 变更后的订单（含明细时按明细统计商品）
+     */
+    private final List<Order> orders;
+}
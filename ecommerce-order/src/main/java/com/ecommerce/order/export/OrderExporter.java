@@ -0,0 +1,198 @@
+package com.ecommerce.order.export;
+
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.mapper.OrderArchiveMapper;
+import com.ecommerce.order.mapper.OrderMapper;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 订单流式导出
+ *
+ * 逐个分库在只读事务中以MyBatis游标（MySQL流式结果集）依次逐行读取热表和归档表，
+ * 边读边写入响应输出流（CSV或NDJSON，可选gzip），内存占用与导出行数无关。导出期间每个分库占用一个数据库连接，同时进行的导出数受限
+ */
+@Slf4j
+@Component
+public class OrderExporter {
+
+    /**
+     * 导出格式
+     */
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final String[] COLUMNS = {"id", "orderNo", "userId", "productId", "productName", "productPrice",
+            "quantity", "totalAmount", "status", "paymentMethod", "paymentTime", "createTime", "updateTime"};
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 同时进行的导出数
+     */
+    @Value("${order.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+
+    private TransactionTemplate readOnlyTemplate;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+        readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+    }
+
+    /**
+     * 占用导出名额（在开始写响应前调用，名额已满时抛出异常），导出结束后由 {@link #export} 释放
+     */
+    public void acquire() {
+        if (!permits.tryAcquire()) {
+            throw new BusinessException(ResultCode.ACQUIRE_LOCK_FAIL.getCode(), "导出任务过多，请稍后重试");
+        }
+    }
+
+    /**
+     * 导出订单（在异步线程中执行，不占用请求线程）
+     * @param status 订单状态，为空时导出全部状态
+     * @param from 创建时间起（含）
+     * @param to 创建时间止（不含）
+     * @return 导出行数
+     */
+    public long export(OutputStream out, String format, boolean gzip, Integer status,
+                       LocalDateTime from, LocalDateTime to) throws IOException {
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        try {
+            GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipStream : out,
+                    StandardCharsets.UTF_8), BUFFER_SIZE);
+            boolean csv = !FORMAT_NDJSON.equalsIgnoreCase(format);
+            if (csv) {
+                writer.write(String.join(",", COLUMNS));
+                writer.write('\n');
+            }
+
+            for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+                Long count = orderShardRouter.execute(shard, () -> readOnlyTemplate.execute(txStatus ->
+                        writeRows(writer, orderMapper.streamOrders(status, from, to), csv)
+                                + writeRows(writer, orderArchiveMapper.streamOrders(status, from, to), csv)));
+                rows += count == null ? 0 : count;
+            }
+
+            writer.flush();
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+            out.flush();
+            log.info("订单导出完成：{}行，格式{}，gzip={}，耗时{}ms", rows, format, gzip,
+                    System.currentTimeMillis() - start);
+            return rows;
+        } catch (UncheckedIOException e) {
+            // 客户端断开等写出失败
+            log.warn("订单导出中断：已导出{}行，{}", rows, e.getMessage());
+            throw e.getCause();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 遍历游标写出（游标需在事务内遍历，遍历结束后关闭）
+     */
+    private long writeRows(Writer writer, Cursor<Order> rows, boolean csv) {
+        long written = 0;
+        try (Cursor<Order> cursor = rows) {
+            for (Order order : cursor) {
+                writeRow(writer, order, csv);
+                written++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    private void writeRow(Writer writer, Order order, boolean csv) throws IOException {
+        Object[] values = {order.getId(), order.getOrderNo(), order.getUserId(), order.getProductId(),
+                order.getProductName(), order.getProductPrice(), order.getQuantity(), order.getTotalAmount(),
+                order.getStatus(), order.getPaymentMethod(), format(order.getPaymentTime()),
+                format(order.getCreateTime()), format(order.getUpdateTime())};
+        if (!csv) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                row.put(COLUMNS[i], values[i]);
+            }
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    private static String format(LocalDateTime time) {
+        return time == null ? null : TIME_FORMATTER.format(time);
+    }
+
+    /**
+     * CSV转义：含逗号、引号、换行时整体加引号，引号双写
+     */
+    private static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
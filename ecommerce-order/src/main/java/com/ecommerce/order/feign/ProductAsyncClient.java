@@ -0,0 +1,151 @@
+package com.ecommerce.order.feign;
+
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.common.result.Result;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 商品服务异步客户端
+ *
+ * 在有界线程池上执行Feign调用并返回CompletableFuture，每次调用带独立超时；
+ * 互不依赖的查询可以并发发起，大批量商品查询按批拆分并行执行
+ */
+@Slf4j
+@Component
+public class ProductAsyncClient {
+
+    @Autowired
+    private ProductFeignClient productFeignClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 调用线程数
+     */
+    @Value("${order.feign.async.threads:16}")
+    private int threads;
+
+    /**
+     * 单次调用超时（毫秒）
+     */
+    @Value("${order.feign.async.timeout-millis:3000}")
+    private long timeoutMillis;
+
+    /**
+     * 批量查询商品时每批商品数
+     */
+    @Value("${order.feign.async.chunk-size:50}")
+    private int chunkSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 64), r -> {
+                    Thread thread = new Thread(r, "product-async-" + index.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "product.async.client");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 查询商品摘要
+     */
+    public CompletableFuture<ProductBriefDTO> getProductBrief(Long productId) {
+        return call(() -> unwrap(productFeignClient.getProductBrief(productId), ResultCode.PRODUCT_NOT_EXIST));
+    }
+
+    /**
+     * 预占库存
+     */
+    public CompletableFuture<ProductSnapshotDTO> reserveStock(Long productId, Integer quantity) {
+        return call(() -> unwrap(productFeignClient.reserveStock(productId, quantity), ResultCode.PRODUCT_NOT_EXIST));
+    }
+
+    /**
+     * 批量查询商品摘要：按批拆分并行查询后合并
+     */
+    public CompletableFuture<List<ProductBriefDTO>> getProductByIds(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        List<CompletableFuture<List<ProductBriefDTO>>> futures = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            futures.add(call(() -> unwrap(productFeignClient.getProductByIds(chunk), ResultCode.PRODUCT_NOT_EXIST)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<ProductBriefDTO> products = new ArrayList<>(ids.size());
+            for (CompletableFuture<List<ProductBriefDTO>> future : futures) {
+                products.addAll(future.join());
+            }
+            return products;
+        });
+    }
+
+    /**
+     * 等待结果，业务异常原样抛出，超时转换为业务异常
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BusinessException) {
+                throw (BusinessException) cause;
+            }
+            if (cause instanceof TimeoutException) {
+                throw new BusinessException("商品服务调用超时");
+            }
+            throw new BusinessException("商品服务调用失败：" + cause.getMessage());
+        }
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor).orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> T unwrap(Result<T> result, ResultCode emptyCode) {
+        if (result == null) {
+            throw new BusinessException(emptyCode);
+        }
+        if (!ResultCode.SUCCESS.getCode().equals(result.getCode())) {
+            throw new BusinessException(result.getCode(), result.getMessage());
+        }
+        if (result.getData() == null) {
+            throw new BusinessException(emptyCode);
+        }
+        return result.getData();
+    }
+}
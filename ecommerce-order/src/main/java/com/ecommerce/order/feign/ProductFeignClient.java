@@ -1,40 +1,72 @@
 package com.ecommerce.order.feign;
 
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.dto.StockLineDTO;
+import com.ecommerce.common.result.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
+import java.util.List;
 
 /**
  * 商品服务Feign客户端
+ *
+ * 内部接口返回精简的DTO；开启 order.feign.internal-codec=cbor 时以CBOR编码传输
  */
 @FeignClient(name = "ecommerce-product", path = "/product")
 public interface ProductFeignClient {
 
     /**
-     * 根据ID查询商品
+     * 查询商品摘要
      */
-    @GetMapping("/{id}")
-    Map<String, Object> getProductById(@PathVariable("id") Long id);
+    @GetMapping("/internal/brief/{productId}")
+    Result<ProductBriefDTO> getProductBrief(@PathVariable("productId") Long productId);
 
     /**
      * 检查库存
      */
     @GetMapping("/internal/check-stock/{productId}/{quantity}")
-    Boolean checkStock(@PathVariable("productId") Long productId, 
-                      @PathVariable("quantity") Integer quantity);
+    Result<Boolean> checkStock(@PathVariable("productId") Long productId,
+                               @PathVariable("quantity") Integer quantity);
 
     /**
      * 扣减库存
      */
     @PostMapping("/internal/deduct-stock/{productId}/{quantity}")
-    Boolean deductStock(@PathVariable("productId") Long productId, 
-                       @PathVariable("quantity") Integer quantity);
+    Result<Boolean> deductStock(@PathVariable("productId") Long productId,
+                                @PathVariable("quantity") Integer quantity);
+
+    /**
+     * 预占库存（校验 + 扣减 + 返回商品快照，一次调用完成）
+     */
+    @PostMapping("/internal/reserve/{productId}/{quantity}")
+    Result<ProductSnapshotDTO> reserveStock(@PathVariable("productId") Long productId,
+                                            @PathVariable("quantity") Integer quantity);
 
     /**
      * 增加库存
      */
     @PostMapping("/internal/add-stock/{productId}/{quantity}")
-    Boolean addStock(@PathVariable("productId") Long productId, 
-                    @PathVariable("quantity") Integer quantity);
+    Result<Boolean> addStock(@PathVariable("productId") Long productId,
+                             @PathVariable("quantity") Integer quantity);
+
+    /**
+     * 批量查询商品
+     */
+    @PostMapping("/internal/batch")
+    Result<List<ProductBriefDTO>> getProductByIds(@RequestBody List<Long> productIds);
+
+    /**
+     * 批量预占库存（全部成功或全部失败）
+     */
+    @PostMapping("/internal/reserve-batch")
+    Result<Boolean> reserveStockBatch(@RequestBody List<StockLineDTO> lines);
+
+    /**
+     * 批量归还库存（同一请求ID只归还一次）
+     */
+    @PostMapping("/internal/release-batch")
+    Result<Boolean> releaseStockBatch(@RequestBody List<StockLineDTO> lines,
+                                      @RequestParam("requestId") String requestId);
 }
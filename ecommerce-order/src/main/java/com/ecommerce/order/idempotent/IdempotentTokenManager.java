@@ -0,0 +1,135 @@
+package com.ecommerce.order.idempotent;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.HMac;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单幂等Token
+ *
+ * redis模式：签发时写入Redis，使用时DEL；signed模式：签发HMAC签名Token（用户ID.过期时间.随机串.签名），
+ * 签发不访问Redis，使用时本地验签后一次SET NX占用，占用标记的过期时间不超过Token剩余有效期
+ */
+@Slf4j
+@Component
+public class IdempotentTokenManager {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * Token模式：redis（默认） signed
+     */
+    @Value("${order.idempotent.mode:redis}")
+    private String mode;
+
+    /**
+     * signed模式签名密钥（各实例一致，无默认值，signed模式未配置时启动失败）
+     */
+    @Value("${order.idempotent.secret:}")
+    private String secret;
+
+    /**
+     * Token有效期（秒）
+     */
+    @Value("${order.idempotent.ttl:300}")
+    private long ttl;
+
+    @PostConstruct
+    public void init() {
+        if (isSigned() && StrUtil.isBlank(secret)) {
+            throw new IllegalStateException("order.idempotent.mode=signed 时必须配置 order.idempotent.secret");
+        }
+    }
+
+    /**
+     * 是否为签名模式
+     */
+    public boolean isSigned() {
+        return "signed".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 签发Token
+     */
+    public String issue(Long userId) {
+        if (!isSigned()) {
+            String token = IdUtil.fastSimpleUUID();
+            redisTemplate.opsForValue().set(RedisKeyConstant.buildIdempotentTokenKey(token), userId, ttl, TimeUnit.SECONDS);
+            return token;
+        }
+        String payload = userId + "." + (System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl)) + "."
+                + IdUtil.fastSimpleUUID();
+        return payload + "." + sign(payload);
+    }
+
+    /**
+     * 使用Token（一次Redis调用），无效、过期或已使用时抛出重复请求
+     */
+    public void consume(Long userId, String token) {
+        if (!isSigned()) {
+            Boolean deleted = redisTemplate.delete(RedisKeyConstant.buildIdempotentTokenKey(token));
+            if (!Boolean.TRUE.equals(deleted)) {
+                throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+            }
+            return;
+        }
+        long remaining = verify(userId, token);
+        Boolean first = redisTemplate.opsForValue()
+                .setIfAbsent(consumedKey(token), 1, remaining, TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(first)) {
+            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+        }
+    }
+
+    /**
+     * signed模式：本地验签，返回剩余有效期（毫秒），无效或过期时抛出重复请求
+     */
+    public long verify(Long userId, String token) {
+        String[] parts = token == null ? new String[0] : token.split("\\.");
+        if (parts.length != 4) {
+            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+        }
+        String payload = parts[0] + "." + parts[1] + "." + parts[2];
+        byte[] expected = sign(payload).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, parts[3].getBytes(StandardCharsets.UTF_8))
+                || !String.valueOf(userId).equals(parts[0])) {
+            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+        }
+        long remaining;
+        try {
+            remaining = Long.parseLong(parts[1]) - System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+        }
+        if (remaining <= 0) {
+            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+        }
+        return remaining;
+    }
+
+    /**
+     * signed模式：Token的占用标记Key（以随机串区分）
+     */
+    public String consumedKey(String token) {
+        return RedisKeyConstant.buildIdempotentTokenKey(token.split("\\.")[2]);
+    }
+
+    private String sign(String payload) {
+        return new HMac(HmacAlgorithm.HmacSHA256, secret.getBytes(StandardCharsets.UTF_8)).digestBase64(payload, true);
+    }
+}
@@ -0,0 +1,144 @@
+package com.ecommerce.order.mapper;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderItem;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单归档Mapper（tb_order_archive / tb_order_item_archive 压缩表，以及 tb_order 的分区维护）
+ */
+@Mapper
+public interface OrderArchiveMapper {
+
+    /**
+     * 订单表的列（热表与归档表一致）
+     */
+    String ORDER_COLUMNS = "id, order_no, user_id, product_id, product_name, product_price, quantity, total_amount, " +
+            "status, payment_method, payment_time, address, receiver, receiver_phone, remark, create_time, " +
+            "update_time, deleted";
+
+    /**
+     * 订单明细表的列（热表与归档表一致）
+     */
+    String ITEM_COLUMNS = "id, order_no, product_id, product_name, product_price, quantity, total_amount, create_time";
+
+    /**
+     * 查询可归档的订单：创建时间早于截止时间的非待支付订单（已支付/已取消/已完成/已关闭，
+     * 已支付订单没有后续状态流转，超过保留期即视为结束）和已逻辑删除的订单，按 create_time 只扫描截止时间之前的分区
+     */
+    @Select("SELECT id, order_no, create_time FROM tb_order WHERE create_time < #{cutoff} " +
+            "AND (status IN (1, 2, 3, 4) OR deleted = 1) LIMIT #{limit}")
+    List<Order> selectArchivable(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 复制订单到归档表（已归档的跳过）
+     */
+    @Insert("<script>INSERT IGNORE INTO tb_order_archive (" + ORDER_COLUMNS + ") " +
+            "SELECT " + ORDER_COLUMNS + " FROM tb_order WHERE create_time &lt; #{cutoff} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyOrders(@Param("cutoff") LocalDateTime cutoff, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 复制订单明细到归档表（已归档的跳过）
+     */
+    @Insert("<script>INSERT IGNORE INTO tb_order_item_archive (" + ITEM_COLUMNS + ") " +
+            "SELECT " + ITEM_COLUMNS + " FROM tb_order_item WHERE order_no IN " +
+            "<foreach collection='orderNos' item='no' open='(' separator=',' close=')'>#{no}</foreach>" +
+            "</script>")
+    int copyItems(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 从热表物理删除已归档的订单
+     */
+    @Delete("<script>DELETE FROM tb_order WHERE create_time &lt; #{cutoff} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteOrders(@Param("cutoff") LocalDateTime cutoff, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 从热表物理删除已归档的订单明细
+     */
+    @Delete("<script>DELETE FROM tb_order_item WHERE order_no IN " +
+            "<foreach collection='orderNos' item='no' open='(' separator=',' close=')'>#{no}</foreach>" +
+            "</script>")
+    int deleteItems(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 按订单号查询归档订单（不含已逻辑删除的）
+     */
+    @Select("SELECT " + ORDER_COLUMNS + " FROM tb_order_archive WHERE order_no = #{orderNo} AND deleted = 0")
+    Order selectByOrderNo(@Param("orderNo") String orderNo);
+
+    /**
+     * 查询归档订单的明细
+     */
+    @Select("SELECT " + ITEM_COLUMNS + " FROM tb_order_item_archive WHERE order_no = #{orderNo}")
+    List<OrderItem> selectItems(@Param("orderNo") String orderNo);
+
+    /**
+     * 用户归档订单游标分页（与 OrderMapper.selectUserOrdersAfter 一致，重建用户订单列表使用）
+     */
+    @Select("<script>SELECT id, order_no, product_id, product_name, product_price, quantity, total_amount, " +
+            "status, payment_time, create_time FROM tb_order_archive WHERE deleted = 0 AND user_id = #{userId} " +
+            "<if test='createTime != null'>" +
+            "AND (create_time &lt; #{createTime} OR (create_time = #{createTime} AND id &lt; #{id})) " +
+            "</if>" +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}</script>")
+    List<Order> selectUserOrdersAfter(@Param("userId") Long userId,
+                                      @Param("createTime") LocalDateTime createTime,
+                                      @Param("id") Long id,
+                                      @Param("limit") int limit);
+
+    /**
+     * 流式查询时间范围内的归档订单（导出使用，与 OrderMapper.streamOrders 一致）
+     */
+    @Select("<script>SELECT id, order_no, user_id, product_id, product_name, product_price, quantity, total_amount, " +
+            "status, payment_method, payment_time, create_time, update_time FROM tb_order_archive " +
+            "WHERE deleted = 0 AND create_time &gt;= #{from} AND create_time &lt; #{to} " +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "ORDER BY id</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Order> streamOrders(@Param("status") Integer status,
+                               @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to);
+
+    /**
+     * tb_order 的分区名（按分区顺序，未分区时为空）
+     */
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() " +
+            "AND TABLE_NAME = 'tb_order' AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> selectPartitionNames();
+
+    /**
+     * 分区内是否还有数据（1-有 0-没有）
+     */
+    @Select("SELECT COUNT(*) FROM (SELECT 1 FROM tb_order PARTITION (${partition}) LIMIT 1) t")
+    int countPartitionRows(@Param("partition") String partition);
+
+    /**
+     * 从 pmax 拆出一个月分区（pmax 为空时只修改元数据）
+     */
+    @Update("ALTER TABLE tb_order REORGANIZE PARTITION pmax INTO (" +
+            "PARTITION ${partition} VALUES LESS THAN ('${lessThan}'), " +
+            "PARTITION pmax VALUES LESS THAN MAXVALUE)")
+    void addPartition(@Param("partition") String partition, @Param("lessThan") String lessThan);
+
+    /**
+     * 删除分区（只删除已归档清空的分区）
+     */
+    @Update("ALTER TABLE tb_order DROP PARTITION ${partition}")
+    void dropPartition(@Param("partition") String partition);
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ecommerce.order.entity.OrderItem;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 订单明细Mapper
+ */
+@Mapper
+public interface OrderItemMapper extends BaseMapper<OrderItem> {
+
+    /**
+     * 批量插入订单明细（多行INSERT）
+     */
+    @Insert("<script>" +
+            "INSERT INTO tb_order_item (order_no, product_id, product_name, product_price, quantity, total_amount) VALUES " +
+            "<foreach collection='items' item='i' separator=','>" +
+            "(#{i.orderNo}, #{i.productId}, #{i.productName}, #{i.productPrice}, #{i.quantity}, #{i.totalAmount})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("items") List<OrderItem> items);
+
+    /**
+     * 分库迁移：批量写入旧库订单明细（保留创建时间）
+     */
+    @Insert("<script>" +
+            "INSERT INTO tb_order_item (order_no, product_id, product_name, product_price, quantity, total_amount, create_time) VALUES " +
+            "<foreach collection='items' item='i' separator=','>" +
+            "(#{i.orderNo}, #{i.productId}, #{i.productName}, #{i.productPrice}, #{i.quantity}, #{i.totalAmount}, #{i.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertMigratedBatch(@Param("items") List<OrderItem> items);
+}
@@ -1,12 +1,162 @@
 package com.ecommerce.order.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ecommerce.order.dto.PaymentNotifyDTO;
 import com.ecommerce.order.entity.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 订单Mapper
  */
 @Mapper
 public interface OrderMapper extends BaseMapper<Order> {
+
+    /**
+     * 批量插入的列
+     */
+    String BATCH_INSERT_COLUMNS = "tb_order (order_no, user_id, product_id, product_name, product_price, " +
+            "quantity, total_amount, status, address, receiver, receiver_phone, remark, create_time) VALUES ";
+
+    /**
+     * 批量插入的行
+     */
+    String BATCH_INSERT_VALUES = "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.orderNo}, #{o.userId}, #{o.productId}, #{o.productName}, #{o.productPrice}, " +
+            "#{o.quantity}, #{o.totalAmount}, #{o.status}, #{o.address}, #{o.receiver}, " +
+            "#{o.receiverPhone}, #{o.remark}, #{o.createTime})" +
+            "</foreach>";
+
+    /**
+     * 批量插入订单（多行INSERT，回填主键）
+     */
+    @Insert("<script>INSERT INTO " + BATCH_INSERT_COLUMNS + BATCH_INSERT_VALUES + "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * 登记订单号（tb_order 按月分区后唯一键带 create_time，订单号唯一由不分区的登记表保证），
+     * 与插入订单在同一事务中执行，订单号重复时抛出 DuplicateKeyException 使整个事务回滚
+     */
+    @Insert("<script>INSERT INTO tb_order_no (order_no) VALUES " +
+            "<foreach collection='orders' item='o' separator=','>(#{o.orderNo})</foreach>" +
+            "</script>")
+    int registerOrderNos(@Param("orders") List<Order> orders);
+
+    /**
+     * 查询已登记的订单号（排队消息重复投递、分库迁移重复执行时跳过已落库的订单）
+     */
+    @Select("<script>SELECT order_no FROM tb_order_no WHERE order_no IN " +
+            "<foreach collection='orderNos' item='no' open='(' separator=',' close=')'>#{no}</foreach>" +
+            "</script>")
+    List<String> selectExistingOrderNos(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 分库迁移：批量写入旧库订单（保留支付信息与时间字段，主键由目标库生成）
+     */
+    @Insert("<script>INSERT INTO tb_order (order_no, user_id, product_id, product_name, product_price, quantity, " +
+            "total_amount, status, payment_method, payment_time, address, receiver, receiver_phone, remark, " +
+            "create_time, update_time) VALUES " +
+            "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.orderNo}, #{o.userId}, #{o.productId}, #{o.productName}, #{o.productPrice}, #{o.quantity}, " +
+            "#{o.totalAmount}, #{o.status}, #{o.paymentMethod}, #{o.paymentTime}, #{o.address}, #{o.receiver}, " +
+            "#{o.receiverPhone}, #{o.remark}, #{o.createTime}, #{o.updateTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertMigratedBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * 用户订单游标分页：沿 idx_user_create 索引从游标位置倒序扫描，只查询列表展示字段，
+     * 扫描行数与页深无关
+     */
+    @Select("<script>SELECT id, order_no, product_id, product_name, product_price, quantity, total_amount, " +
+            "status, payment_time, create_time FROM tb_order WHERE deleted = 0 AND user_id = #{userId} " +
+            "<if test='createTime != null'>" +
+            "AND (create_time &lt; #{createTime} OR (create_time = #{createTime} AND id &lt; #{id})) " +
+            "</if>" +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}</script>")
+    List<Order> selectUserOrdersAfter(@Param("userId") Long userId,
+                                      @Param("createTime") LocalDateTime createTime,
+                                      @Param("id") Long id,
+                                      @Param("limit") int limit);
+
+    /**
+     * 按用户ID顺序分批查询有订单的用户（沿 idx_user_create 索引，重建用户订单列表使用）
+     */
+    @Select("SELECT DISTINCT user_id FROM tb_order WHERE deleted = 0 AND user_id > #{userId} " +
+            "ORDER BY user_id LIMIT #{limit}")
+    List<Long> selectUserIdsAfter(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * 流式查询时间范围内的订单（导出使用）：fetchSize = Integer.MIN_VALUE 时MySQL驱动逐行读取结果集，
+     * 不在内存中缓存整个结果集；游标需在事务内遍历
+     */
+    @Select("<script>SELECT id, order_no, user_id, product_id, product_name, product_price, quantity, total_amount, " +
+            "status, payment_method, payment_time, create_time, update_time FROM tb_order " +
+            "WHERE deleted = 0 AND create_time &gt;= #{from} AND create_time &lt; #{to} " +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "ORDER BY id</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Order> streamOrders(@Param("status") Integer status,
+                               @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to);
+
+    /**
+     * 查询待支付订单并加行锁（批量超时取消）
+     */
+    @Select("<script>SELECT * FROM tb_order WHERE deleted = 0 AND status = 0 AND order_no IN " +
+            "<foreach collection='orderNos' item='no' open='(' separator=',' close=')'>#{no}</foreach> " +
+            "FOR UPDATE</script>")
+    List<Order> selectPendingForUpdate(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 状态迁移（条件更新）：仅当前状态为 fromStatus 时更新，返回影响行数
+     */
+    @Update("UPDATE tb_order SET status = #{toStatus}, update_time = NOW() " +
+            "WHERE order_no = #{orderNo} AND status = #{fromStatus} AND deleted = 0")
+    int updateStatus(@Param("orderNo") String orderNo,
+                     @Param("fromStatus") int fromStatus,
+                     @Param("toStatus") int toStatus);
+
+    /**
+     * 支付待支付订单（条件更新），返回影响行数
+     */
+    @Update("UPDATE tb_order SET status = 1, payment_method = #{paymentMethod}, payment_time = #{paymentTime}, " +
+            "update_time = NOW() WHERE order_no = #{orderNo} AND status = 0 AND deleted = 0")
+    int payPending(@Param("orderNo") String orderNo,
+                   @Param("paymentMethod") Integer paymentMethod,
+                   @Param("paymentTime") LocalDateTime paymentTime);
+
+    /**
+     * 批量支付待支付订单（一条条件UPDATE，已支付/已取消的订单不受影响），返回影响行数
+     */
+    @Update("<script>UPDATE tb_order SET status = 1, " +
+            "payment_method = CASE order_no " +
+            "<foreach collection='notifies' item='n'>WHEN #{n.orderNo} THEN #{n.paymentMethod} </foreach>" +
+            "END, " +
+            "payment_time = CASE order_no " +
+            "<foreach collection='notifies' item='n'>WHEN #{n.orderNo} THEN #{n.paymentTime} </foreach>" +
+            "END, " +
+            "update_time = NOW() WHERE deleted = 0 AND status = 0 AND order_no IN " +
+            "<foreach collection='notifies' item='n' open='(' separator=',' close=')'>#{n.orderNo}</foreach>" +
+            "</script>")
+    int payPendingBatch(@Param("notifies") List<PaymentNotifyDTO> notifies);
+
+    /**
+     * 批量取消待支付订单（条件更新，已支付/已取消的订单不受影响）
+     */
+    @Update("<script>UPDATE tb_order SET status = 2, update_time = NOW() WHERE deleted = 0 AND status = 0 AND order_no IN " +
+            "<foreach collection='orderNos' item='no' open='(' separator=',' close=')'>#{no}</foreach>" +
+            "</script>")
+    int cancelPendingBatch(@Param("orderNos") Collection<String> orderNos);
 }
@@ -0,0 +1,63 @@
+package com.ecommerce.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ecommerce.order.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单发件箱Mapper
+ */
+@Mapper
+public interface OrderOutboxMapper extends BaseMapper<OrderOutbox> {
+
+    /**
+     * 批量写入事件（多行INSERT）
+     */
+    @Insert("<script>" +
+            "INSERT INTO tb_order_outbox (event_type, aggregate_id, payload) VALUES " +
+            "<foreach collection='events' item='e' separator=','>" +
+            "(#{e.eventType}, #{e.aggregateId}, #{e.payload})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("events") List<OrderOutbox> events);
+
+    /**
+     * 领取到期事件并加行锁（不含已停放的事件），已被其他实例锁定的行跳过（多实例并行中继互不阻塞）
+     */
+    @Select("SELECT * FROM tb_order_outbox WHERE parked = 0 AND next_retry_time <= NOW() ORDER BY id " +
+            "LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<OrderOutbox> selectDueForUpdate(@Param("limit") int limit);
+
+    /**
+     * 领取事件：把下次投递时间推后到租约到期，提交后释放行锁再投递；实例宕机时租约到期由其他实例重新领取
+     */
+    @Update("<script>UPDATE tb_order_outbox SET next_retry_time = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND) " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int claim(@Param("ids") Collection<Long> ids, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * 投递失败的事件延后重试
+     */
+    @Update("<script>UPDATE tb_order_outbox SET retry_count = retry_count + 1, " +
+            "next_retry_time = DATE_ADD(NOW(), INTERVAL #{delaySeconds} SECOND) WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int delayRetry(@Param("ids") Collection<Long> ids, @Param("delaySeconds") long delaySeconds);
+
+    /**
+     * 停放超过最大重试次数的事件，不再领取（人工处理后把 parked 改回0重新投递）
+     */
+    @Update("<script>UPDATE tb_order_outbox SET retry_count = retry_count + 1, parked = 1 WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int park(@Param("ids") Collection<Long> ids);
+}
@@ -1,15 +1,24 @@
 package com.ecommerce.order.mq;
 
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.service.FlashOrderService;
 import com.ecommerce.order.service.OrderService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.client.Channel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 订单消息消费者
@@ -21,36 +30,156 @@ public class OrderMessageConsumer {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private FlashOrderService flashOrderService;
+
+    @Autowired
+    private OrderMessageProducer orderMessageProducer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 超时取消最大重试次数
+     */
+    @Value("${order.timeout.consumer.max-retries:5}")
+    private int maxRetries;
+
+    /**
+     * 排队订单最大重试次数
+     */
+    @Value("${order.flash.max-retries:5}")
+    private int flashMaxRetries;
+
     /**
-     * 处理订单超时消息
+     * 批量处理订单超时消息：一批订单一条条件UPDATE取消、库存汇总后一次归还，批量确认；
+     * 整批失败时逐条重试，仍失败的订单进入重试队列，超过最大次数进入停放队列，不再无限重新入队
      */
-    @RabbitListener(queues = RabbitMQConfig.ORDER_TIMEOUT_DLX_QUEUE)
-    public void handleOrderTimeout(Message message, Channel channel) throws IOException {
+    @RabbitListener(queues = RabbitMQConfig.ORDER_TIMEOUT_DLX_QUEUE,
+            containerFactory = "timeoutBatchListenerContainerFactory")
+    public void handleOrderTimeouts(List<Message> messages, Channel channel) throws IOException {
+        long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+
+        // 同一订单的重复消息合并
+        Map<String, Message> messageMap = new LinkedHashMap<>();
+        for (Message message : messages) {
+            messageMap.put(new String(message.getBody()), message);
+        }
+
         try {
-            String orderNo = new String(message.getBody());
-            log.info("收到订单超时消息：{}", orderNo);
-
-            // 查询订单
-            Order order = orderService.getOrderByOrderNo(orderNo);
-            if (order == null) {
-                log.warn("订单不存在：{}", orderNo);
-                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
-                return;
+            int cancelled = orderService.cancelTimeoutOrders(messageMap.keySet());
+            log.info("收到订单超时消息{}条，取消{}条", messageMap.size(), cancelled);
+        } catch (Exception e) {
+            log.warn("订单超时批量取消失败，逐条重试：{}条，{}", messageMap.size(), e.getMessage());
+            for (Map.Entry<String, Message> entry : messageMap.entrySet()) {
+                try {
+                    orderService.cancelTimeoutOrders(Collections.singletonList(entry.getKey()));
+                } catch (Exception rowException) {
+                    retryLater(entry.getKey(), entry.getValue(), rowException);
+                }
+            }
+        }
+
+        channel.basicAck(lastDeliveryTag, true);
+    }
+
+    /**
+     * 投递到重试队列（延迟后回到超时队列），超过最大次数投递到停放队列
+     */
+    private void retryLater(String orderNo, Message message, Exception e) {
+        Object header = message.getMessageProperties().getHeaders().get(OrderMessageProducer.RETRY_COUNT_HEADER);
+        int retryCount = header instanceof Number ? ((Number) header).intValue() + 1 : 1;
+        boolean parking = retryCount > maxRetries;
+        orderMessageProducer.sendOrderTimeoutRetryMessage(orderNo, retryCount, parking);
+        if (parking) {
+            log.error("订单超时取消多次失败，已停放：{}", orderNo, e);
+        } else {
+            log.warn("订单超时取消失败，第{}次重试：{}，{}", retryCount, orderNo, e.getMessage());
+        }
+    }
+
+    /**
+     * 批量处理秒杀排队下单消息：一批消息一条多行INSERT，批量确认；
+     * 整批失败时逐条落库，仍失败的订单进入重试队列，超过最大次数进入停放队列，不再整批重新入队
+     */
+    @RabbitListener(queues = RabbitMQConfig.ORDER_FLASH_QUEUE,
+            containerFactory = "batchListenerContainerFactory")
+    public void handleFlashOrders(List<Message> messages, Channel channel) throws IOException {
+        long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+
+        List<Order> orders = new ArrayList<>(messages.size());
+        List<Message> orderMessages = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                orders.add(objectMapper.readValue(message.getBody(), Order.class));
+                orderMessages.add(message);
+            } catch (IOException e) {
+                // 无法解析的消息直接停放，避免阻塞整批
+                log.error("排队订单消息解析失败，已停放：{}", new String(message.getBody()), e);
+                orderMessageProducer.sendFlashOrderRetryMessage(message, 0, true);
+                failUnparsableFlashOrder(message);
             }
+        }
 
-            // 如果订单还是待支付状态，则自动取消
-            if (order.getStatus() == 0) {
-                orderService.cancelOrder(orderNo);
-                log.info("订单超时自动取消：{}", orderNo);
+        try {
+            flashOrderService.persistQueuedOrders(orders);
+        } catch (Exception e) {
+            // 已登记订单号的订单跳过，保证已落库的订单重复写入幂等
+            log.warn("排队订单批量落库失败，逐条重试：{}条，{}", orders.size(), e.getMessage());
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                try {
+                    flashOrderService.persistQueuedOrders(Collections.singletonList(order));
+                } catch (Exception rowException) {
+                    retryFlashLater(order, orderMessages.get(i), rowException);
+                }
             }
+        }
+
+        channel.basicAck(lastDeliveryTag, true);
+    }
+
+    /**
+     * 排队订单投递到重试队列（延迟后回到排队下单队列），超过最大次数投递到停放队列并标记排队失败
+     */
+    private void retryFlashLater(Order order, Message message, Exception e) {
+        Object header = message.getMessageProperties().getHeaders().get(OrderMessageProducer.RETRY_COUNT_HEADER);
+        int retryCount = header instanceof Number ? ((Number) header).intValue() + 1 : 1;
+        boolean parking = retryCount > flashMaxRetries;
+        orderMessageProducer.sendFlashOrderRetryMessage(message, retryCount, parking);
+        if (parking) {
+            log.error("排队订单多次落库失败，已停放：{}", order.getOrderNo(), e);
+            failFlashOrder(order.getOrderNo(), order.getProductId(), order.getQuantity());
+        } else {
+            log.warn("排队订单落库失败，第{}次重试：{}，{}", retryCount, order.getOrderNo(), e.getMessage());
+        }
+    }
 
-            // 确认消息
-            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+    /**
+     * 无法解析为订单的消息：能读出订单号、商品和数量时同样标记排队失败并归还库存
+     */
+    private void failUnparsableFlashOrder(Message message) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(message.getBody());
+        } catch (IOException e) {
+            return;
+        }
+        if (node != null && node.hasNonNull("orderNo") && node.hasNonNull("productId")
+                && node.hasNonNull("quantity")) {
+            failFlashOrder(node.get("orderNo").asText(), node.get("productId").asLong(), node.get("quantity").asInt());
+        }
+    }
 
+    private void failFlashOrder(String orderNo, Long productId, Integer quantity) {
+        if (orderNo == null || productId == null || quantity == null) {
+            return;
+        }
+        try {
+            flashOrderService.failQueuedOrder(orderNo, productId, quantity);
         } catch (Exception e) {
-            log.error("处理订单超时消息失败：{}", e.getMessage(), e);
-            // 拒绝消息并重新入队
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, true);
+            log.error("停放的排队订单标记失败、归还库存失败，需人工处理：orderNo={}, 商品ID={}, 数量={}",
+                    orderNo, productId, quantity, e);
         }
     }
 }
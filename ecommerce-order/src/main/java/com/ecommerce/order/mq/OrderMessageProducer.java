@@ -1,10 +1,14 @@
 package com.ecommerce.order.mq;
 
+import com.ecommerce.order.entity.Order;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -14,30 +18,110 @@ import org.springframework.stereotype.Component;
 @Component
 public class OrderMessageProducer {
 
+    /**
+     * 超时取消、排队落库重试次数消息头
+     */
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 排队下单消息等待发布确认超时时间（毫秒）
+     */
+    @Value("${order.flash.confirm-timeout:3000}")
+    private long flashConfirmTimeout;
+
     /**
-     * 发送订单超时消息（延迟消息）
+     * 发送订单超时消息（延迟消息，失败直接抛出，由发件箱中继重试）
      * @param orderNo 订单号
      * @param delayMillis 延迟时间（毫秒）
      */
     public void sendOrderTimeoutMessage(String orderNo, long delayMillis) {
+        MessageProperties properties = new MessageProperties();
+        properties.setExpiration(String.valueOf(delayMillis));
+
+        Message message = new Message(orderNo.getBytes(), properties);
+
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.ORDER_TIMEOUT_EXCHANGE,
+                RabbitMQConfig.ORDER_TIMEOUT_ROUTING_KEY,
+                message
+        );
+
+        log.info("发送订单超时消息：orderNo={}, delay={}ms", orderNo, delayMillis);
+    }
+
+    /**
+     * 发送订单到期消息（直接投递到死信队列，立即由超时消费者处理）
+     * @param orderNo 订单号
+     */
+    public void sendOrderExpiredMessage(String orderNo) {
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.ORDER_TIMEOUT_DLX_EXCHANGE,
+                RabbitMQConfig.ORDER_TIMEOUT_DLX_ROUTING_KEY,
+                new Message(orderNo.getBytes(), new MessageProperties())
+        );
+    }
+
+    /**
+     * 超时取消失败的订单投递到重试队列，超过最大次数投递到停放队列
+     * @param orderNo 订单号
+     * @param retryCount 本次是第几次重试
+     * @param parking 是否停放
+     */
+    public void sendOrderTimeoutRetryMessage(String orderNo, int retryCount, boolean parking) {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(RETRY_COUNT_HEADER, retryCount);
+        rabbitTemplate.send(
+                RabbitMQConfig.ORDER_TIMEOUT_RETRY_EXCHANGE,
+                parking ? RabbitMQConfig.ORDER_TIMEOUT_PARKING_ROUTING_KEY : RabbitMQConfig.ORDER_TIMEOUT_RETRY_ROUTING_KEY,
+                new Message(orderNo.getBytes(), properties)
+        );
+    }
+
+    /**
+     * 排队订单落库失败的消息投递到重试队列，超过最大次数或无法解析时投递到停放队列
+     * @param message 原消息（保留消息体与消息ID）
+     * @param retryCount 本次是第几次重试
+     * @param parking 是否停放
+     */
+    public void sendFlashOrderRetryMessage(Message message, int retryCount, boolean parking) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setMessageId(message.getMessageProperties().getMessageId());
+        properties.setHeader(RETRY_COUNT_HEADER, retryCount);
+        rabbitTemplate.send(
+                RabbitMQConfig.ORDER_FLASH_RETRY_EXCHANGE,
+                parking ? RabbitMQConfig.ORDER_FLASH_PARKING_ROUTING_KEY : RabbitMQConfig.ORDER_FLASH_RETRY_ROUTING_KEY,
+                new Message(message.getBody(), properties)
+        );
+    }
+
+    /**
+     * 发送秒杀排队下单消息并等待Broker确认（未确认或超时直接抛出，由调用方归还预扣库存并标记排队失败）
+     * @param order 待落库的订单
+     */
+    public void sendFlashOrderMessage(Order order) {
+        byte[] body;
         try {
-            MessageProperties properties = new MessageProperties();
-            properties.setExpiration(String.valueOf(delayMillis));
-            
-            Message message = new Message(orderNo.getBytes(), properties);
-            
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.ORDER_TIMEOUT_EXCHANGE,
-                    RabbitMQConfig.ORDER_TIMEOUT_ROUTING_KEY,
-                    message
-            );
-            
-            log.info("发送订单超时消息：orderNo={}, delay={}ms", orderNo, delayMillis);
-        } catch (Exception e) {
-            log.error("发送订单超时消息失败：{}", e.getMessage(), e);
+            body = objectMapper.writeValueAsBytes(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化排队订单失败：" + order.getOrderNo(), e);
         }
+
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setMessageId(order.getOrderNo());
+
+        Message message = new Message(body, properties);
+        rabbitTemplate.invoke(operations -> {
+            operations.send(RabbitMQConfig.ORDER_FLASH_EXCHANGE, RabbitMQConfig.ORDER_FLASH_ROUTING_KEY, message);
+            operations.waitForConfirmsOrDie(flashConfirmTimeout);
+            return null;
+        });
     }
 }
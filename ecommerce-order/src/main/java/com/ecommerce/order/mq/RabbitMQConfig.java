@@ -2,6 +2,10 @@ package com.ecommerce.order.mq;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -22,6 +26,67 @@ public class RabbitMQConfig {
     public static final String ORDER_TIMEOUT_DLX_EXCHANGE = "order.timeout.dlx.exchange";
     public static final String ORDER_TIMEOUT_DLX_ROUTING_KEY = "order.timeout.dlx";
 
+    // 超时取消重试队列（固定TTL后回到死信队列）与停放队列
+    public static final String ORDER_TIMEOUT_RETRY_QUEUE = "order.timeout.retry.queue";
+    public static final String ORDER_TIMEOUT_PARKING_QUEUE = "order.timeout.parking.queue";
+    public static final String ORDER_TIMEOUT_RETRY_EXCHANGE = "order.timeout.retry.exchange";
+    public static final String ORDER_TIMEOUT_RETRY_ROUTING_KEY = "order.timeout.retry";
+    public static final String ORDER_TIMEOUT_PARKING_ROUTING_KEY = "order.timeout.parking";
+
+    // 秒杀排队下单队列
+    public static final String ORDER_FLASH_QUEUE = "order.flash.queue";
+    public static final String ORDER_FLASH_EXCHANGE = "order.flash.exchange";
+    public static final String ORDER_FLASH_ROUTING_KEY = "order.flash";
+
+    // 秒杀排队下单重试队列（固定TTL后回到排队下单队列）与停放队列
+    public static final String ORDER_FLASH_RETRY_QUEUE = "order.flash.retry.queue";
+    public static final String ORDER_FLASH_PARKING_QUEUE = "order.flash.parking.queue";
+    public static final String ORDER_FLASH_RETRY_EXCHANGE = "order.flash.retry.exchange";
+    public static final String ORDER_FLASH_RETRY_ROUTING_KEY = "order.flash.retry";
+    public static final String ORDER_FLASH_PARKING_ROUTING_KEY = "order.flash.parking";
+
+    /**
+     * 批量消费：每批最大消息数
+     */
+    @Value("${order.flash.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 批量消费：攒批等待时间（毫秒）
+     */
+    @Value("${order.flash.receive-timeout:50}")
+    private long receiveTimeout;
+
+    /**
+     * 批量消费：消费者数量
+     */
+    @Value("${order.flash.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * 超时取消批量消费：每批最大消息数
+     */
+    @Value("${order.timeout.consumer.batch-size:500}")
+    private int timeoutBatchSize;
+
+    /**
+     * 超时取消批量消费：攒批等待时间（毫秒）
+     */
+    @Value("${order.timeout.consumer.receive-timeout:200}")
+    private long timeoutReceiveTimeout;
+
+    /**
+     * 超时取消失败重试间隔（毫秒）
+     */
+    @Value("${order.timeout.consumer.retry-delay:10000}")
+    private long timeoutRetryDelay;
+
+    /**
+     * 排队订单落库失败重试间隔（毫秒）
+     */
+    @Value("${order.flash.retry-delay:5000}")
+    private long flashRetryDelay;
+
     /**
      * 订单超时队列（配置死信）
      */
@@ -76,4 +141,162 @@ public class RabbitMQConfig {
                 .to(orderTimeoutDlxExchange())
                 .with(ORDER_TIMEOUT_DLX_ROUTING_KEY);
     }
+
+    /**
+     * 超时取消重试队列（消息到期后回到死信队列重新消费）
+     */
+    @Bean
+    public Queue orderTimeoutRetryQueue() {
+        return QueueBuilder.durable(ORDER_TIMEOUT_RETRY_QUEUE)
+                .withArgument("x-message-ttl", timeoutRetryDelay)
+                .withArgument("x-dead-letter-exchange", ORDER_TIMEOUT_DLX_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", ORDER_TIMEOUT_DLX_ROUTING_KEY)
+                .build();
+    }
+
+    /**
+     * 超时取消停放队列（超过重试次数，人工处理）
+     */
+    @Bean
+    public Queue orderTimeoutParkingQueue() {
+        return QueueBuilder.durable(ORDER_TIMEOUT_PARKING_QUEUE).build();
+    }
+
+    /**
+     * 超时取消重试交换机
+     */
+    @Bean
+    public DirectExchange orderTimeoutRetryExchange() {
+        return new DirectExchange(ORDER_TIMEOUT_RETRY_EXCHANGE);
+    }
+
+    /**
+     * 重试队列绑定
+     */
+    @Bean
+    public Binding orderTimeoutRetryBinding() {
+        return BindingBuilder.bind(orderTimeoutRetryQueue())
+                .to(orderTimeoutRetryExchange())
+                .with(ORDER_TIMEOUT_RETRY_ROUTING_KEY);
+    }
+
+    /**
+     * 停放队列绑定
+     */
+    @Bean
+    public Binding orderTimeoutParkingBinding() {
+        return BindingBuilder.bind(orderTimeoutParkingQueue())
+                .to(orderTimeoutRetryExchange())
+                .with(ORDER_TIMEOUT_PARKING_ROUTING_KEY);
+    }
+
+    /**
+     * 秒杀排队下单队列
+     */
+    @Bean
+    public Queue orderFlashQueue() {
+        return QueueBuilder.durable(ORDER_FLASH_QUEUE).build();
+    }
+
+    /**
+     * 秒杀排队下单交换机
+     */
+    @Bean
+    public DirectExchange orderFlashExchange() {
+        return new DirectExchange(ORDER_FLASH_EXCHANGE);
+    }
+
+    /**
+     * 秒杀排队下单绑定
+     */
+    @Bean
+    public Binding orderFlashBinding() {
+        return BindingBuilder.bind(orderFlashQueue())
+                .to(orderFlashExchange())
+                .with(ORDER_FLASH_ROUTING_KEY);
+    }
+
+    /**
+     * 排队下单重试队列（消息到期后回到排队下单队列重新消费）
+     */
+    @Bean
+    public Queue orderFlashRetryQueue() {
+        return QueueBuilder.durable(ORDER_FLASH_RETRY_QUEUE)
+                .withArgument("x-message-ttl", flashRetryDelay)
+                .withArgument("x-dead-letter-exchange", ORDER_FLASH_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", ORDER_FLASH_ROUTING_KEY)
+                .build();
+    }
+
+    /**
+     * 排队下单停放队列（超过重试次数或无法解析，人工处理）
+     */
+    @Bean
+    public Queue orderFlashParkingQueue() {
+        return QueueBuilder.durable(ORDER_FLASH_PARKING_QUEUE).build();
+    }
+
+    /**
+     * 排队下单重试交换机
+     */
+    @Bean
+    public DirectExchange orderFlashRetryExchange() {
+        return new DirectExchange(ORDER_FLASH_RETRY_EXCHANGE);
+    }
+
+    /**
+     * 排队下单重试队列绑定
+     */
+    @Bean
+    public Binding orderFlashRetryBinding() {
+        return BindingBuilder.bind(orderFlashRetryQueue())
+                .to(orderFlashRetryExchange())
+                .with(ORDER_FLASH_RETRY_ROUTING_KEY);
+    }
+
+    /**
+     * 排队下单停放队列绑定
+     */
+    @Bean
+    public Binding orderFlashParkingBinding() {
+        return BindingBuilder.bind(orderFlashParkingQueue())
+                .to(orderFlashRetryExchange())
+                .with(ORDER_FLASH_PARKING_ROUTING_KEY);
+    }
+
+    /**
+     * 批量消费容器工厂（一次拉取多条消息，手动批量确认）
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return buildBatchFactory(configurer, connectionFactory, batchSize, receiveTimeout, concurrency);
+    }
+
+    /**
+     * 超时取消批量消费容器工厂
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory timeoutBatchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return buildBatchFactory(configurer, connectionFactory, timeoutBatchSize, timeoutReceiveTimeout, 1);
+    }
+
+    private SimpleRabbitListenerContainerFactory buildBatchFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            int size, long timeout, int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(size);
+        factory.setReceiveTimeout(timeout);
+        factory.setPrefetchCount(size * 2);
+        factory.setConcurrentConsumers(consumers);
+        factory.setMaxConcurrentConsumers(consumers);
+        return factory;
+    }
 }
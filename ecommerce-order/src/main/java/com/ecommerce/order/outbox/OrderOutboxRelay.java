@@ -0,0 +1,244 @@
+package com.ecommerce.order.outbox;
+
+import com.ecommerce.common.dto.StockLineDTO;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.common.result.Result;
+import com.ecommerce.order.entity.OrderOutbox;
+import com.ecommerce.order.feign.ProductFeignClient;
+import com.ecommerce.order.mapper.OrderOutboxMapper;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import com.ecommerce.order.timeout.OrderTimeoutScheduler;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单发件箱中继
+ *
+ * 短事务批量领取到期事件（SKIP LOCKED，多实例并行互不阻塞）并把下次投递时间推后一个租约后提交，
+ * 投递在事务外进行，不持有行锁调用商品服务：超时调度消息在同一信道连续发送后统一等待发布确认，
+ * 库存归还以分库序号+事件ID作为请求ID调用商品服务（重复投递只归还一次）；
+ * 再用一个短事务批量删除成功的事件、延后重试失败的事件，超过最大投递次数的事件停放并记录ERROR日志，不再占用领取批次。
+ * 分库时逐个分库中继。投递语义为至少一次
+ */
+@Slf4j
+@Component
+public class OrderOutboxRelay {
+
+    private static final TypeReference<List<StockLineDTO>> STOCK_LINES_TYPE = new TypeReference<List<StockLineDTO>>() {
+    };
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
+
+    @Autowired
+    private ProductFeignClient productFeignClient;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    /**
+     * 每批领取的事件数
+     */
+    @Value("${order.outbox.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    @Value("${order.outbox.poll-interval:200}")
+    private long pollInterval;
+
+    /**
+     * 投递失败重试间隔（秒）
+     */
+    @Value("${order.outbox.retry-delay:10}")
+    private long retryDelay;
+
+    /**
+     * 等待发布确认超时时间（毫秒）
+     */
+    @Value("${order.outbox.confirm-timeout:5000}")
+    private long confirmTimeout;
+
+    /**
+     * 领取租约（秒）：领取后超过该时间仍未完成（实例宕机等）的事件重新到期，需大于一批的投递耗时
+     */
+    @Value("${order.outbox.claim-lease:120}")
+    private long claimLease;
+
+    /**
+     * 最大投递次数，仍失败的事件停放
+     */
+    @Value("${order.outbox.max-retries:60}")
+    private int maxRetries;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::relay, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        log.info("订单发件箱中继启动：batchSize={}, pollInterval={}ms", batchSize, pollInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    private void relay() {
+        for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+            int current = shard;
+            try {
+                // 积压时连续处理，直到领取不满一批
+                while (orderShardRouter.execute(current, () -> relayBatch(current)) >= batchSize) {
+                    log.debug("订单发件箱积压，继续投递：分库{}", current);
+                }
+            } catch (Exception e) {
+                log.error("订单发件箱投递异常：分库{}，{}", current, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 领取、投递并清理一批事件（领取与清理各一个短事务，投递期间不持有行锁）
+     * @return 本批领取的事件数
+     */
+    private int relayBatch(int shard) {
+        List<OrderOutbox> events = transactionTemplate.execute(status -> {
+            List<OrderOutbox> due = orderOutboxMapper.selectDueForUpdate(batchSize);
+            if (!due.isEmpty()) {
+                List<Long> ids = new ArrayList<>(due.size());
+                for (OrderOutbox event : due) {
+                    ids.add(event.getId());
+                }
+                orderOutboxMapper.claim(ids, claimLease);
+            }
+            return due;
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        List<OrderOutbox> timeoutEvents = new ArrayList<>();
+        List<OrderOutbox> releaseEvents = new ArrayList<>();
+        for (OrderOutbox event : events) {
+            if (OrderOutbox.EVENT_ORDER_TIMEOUT.equals(event.getEventType())) {
+                timeoutEvents.add(event);
+            } else {
+                releaseEvents.add(event);
+            }
+        }
+
+        List<Long> delivered = new ArrayList<>(events.size());
+        List<OrderOutbox> failed = new ArrayList<>();
+        relayTimeouts(timeoutEvents, delivered, failed);
+        for (OrderOutbox event : releaseEvents) {
+            if (relayStockRelease(shard, event)) {
+                delivered.add(event.getId());
+            } else {
+                failed.add(event);
+            }
+        }
+
+        List<Long> retries = new ArrayList<>(failed.size());
+        List<Long> parked = new ArrayList<>();
+        for (OrderOutbox event : failed) {
+            if (event.getRetryCount() + 1 >= maxRetries) {
+                parked.add(event.getId());
+                log.error("订单发件箱事件投递{}次仍失败，已停放：分库{}, id={}, type={}, orderNo={}, payload={}",
+                        event.getRetryCount() + 1, shard, event.getId(), event.getEventType(),
+                        event.getAggregateId(), event.getPayload());
+            } else {
+                retries.add(event.getId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                orderOutboxMapper.deleteBatchIds(delivered);
+            }
+            if (!retries.isEmpty()) {
+                orderOutboxMapper.delayRetry(retries, retryDelay);
+            }
+            if (!parked.isEmpty()) {
+                orderOutboxMapper.park(parked);
+            }
+        });
+        log.debug("订单发件箱投递：成功{}条，失败{}条，停放{}条", delivered.size(), retries.size(), parked.size());
+        return events.size();
+    }
+
+    /**
+     * 超时调度：同一信道连续发送，最后一次等待全部发布确认
+     */
+    private void relayTimeouts(List<OrderOutbox> events, List<Long> delivered, List<OrderOutbox> failed) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            rabbitTemplate.invoke(operations -> {
+                long now = System.currentTimeMillis();
+                for (OrderOutbox event : events) {
+                    long deadline = Long.parseLong(event.getPayload());
+                    orderTimeoutScheduler.schedule(event.getAggregateId(), Math.max(0, deadline - now));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeout);
+                return null;
+            });
+            for (OrderOutbox event : events) {
+                delivered.add(event.getId());
+            }
+        } catch (Exception e) {
+            log.warn("投递超时调度事件失败：{}条，{}", events.size(), e.getMessage());
+            failed.addAll(events);
+        }
+    }
+
+    private boolean relayStockRelease(int shard, OrderOutbox event) {
+        try {
+            List<StockLineDTO> lines = objectMapper.readValue(event.getPayload(), STOCK_LINES_TYPE);
+            Result<Boolean> result = productFeignClient.releaseStockBatch(lines, "outbox:" + shard + ":" + event.getId());
+            if (result == null || !ResultCode.SUCCESS.getCode().equals(result.getCode())) {
+                log.warn("归还库存失败：orderNo={}, 第{}次，{}", event.getAggregateId(), event.getRetryCount() + 1,
+                        result == null ? null : result.getMessage());
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("归还库存失败：orderNo={}, 第{}次，{}", event.getAggregateId(), event.getRetryCount() + 1,
+                    e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommerce.order.outbox;
+
+import com.ecommerce.common.dto.StockLineDTO;
+import com.ecommerce.order.entity.OrderOutbox;
+import com.ecommerce.order.mapper.OrderOutboxMapper;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单发件箱写入
+ *
+ * 构造事件并写入发件箱；save 需在调用方的订单事务中执行，事件与订单同时提交或同时回滚
+ */
+@Slf4j
+@Component
+public class OrderOutboxWriter {
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    /**
+     * 超时调度事件
+     */
+    public OrderOutbox timeoutEvent(String orderNo, long delayMillis) {
+        return buildEvent(OrderOutbox.EVENT_ORDER_TIMEOUT, orderNo,
+                String.valueOf(System.currentTimeMillis() + delayMillis));
+    }
+
+    /**
+     * 归还库存事件
+     */
+    public OrderOutbox stockReleaseEvent(String orderNo, List<StockLineDTO> lines) {
+        try {
+            return buildEvent(OrderOutbox.EVENT_STOCK_RELEASE, orderNo, objectMapper.writeValueAsString(lines));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化库存行失败：" + orderNo, e);
+        }
+    }
+
+    /**
+     * 写入事件（加入当前事务）
+     */
+    public void save(List<OrderOutbox> events) {
+        if (!events.isEmpty()) {
+            orderOutboxMapper.insertBatch(events);
+        }
+    }
+
+    /**
+     * 订单未能落库时单独提交库存归还事件（写入订单所在分库），由中继归还已预占的库存
+     */
+    public void saveStockRelease(String orderNo, List<StockLineDTO> lines) {
+        OrderOutbox event = stockReleaseEvent(orderNo, lines);
+        orderShardRouter.run(orderShardRouter.locateOrder(orderNo),
+                () -> transactionTemplate.executeWithoutResult(status -> save(Collections.singletonList(event))));
+        log.info("订单落库失败，登记库存归还：{}", orderNo);
+    }
+
+    private OrderOutbox buildEvent(String eventType, String orderNo, String payload) {
+        OrderOutbox event = new OrderOutbox();
+        event.setEventType(eventType);
+        event.setAggregateId(orderNo);
+        event.setPayload(payload);
+        return event;
+    }
+}
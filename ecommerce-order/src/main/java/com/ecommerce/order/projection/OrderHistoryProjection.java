@@ -0,0 +1,190 @@
+package com.ecommerce.order.projection;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.utils.TransactionUtil;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.vo.OrderSummaryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户订单列表读模型（Redis）
+ *
+ * order:history:{用户ID} 有序集合保存订单号（按下单时间），order:history:summary:{用户ID} 哈希保存订单摘要，
+ * 订单创建和状态变更在事务提交后覆盖写入；order:history:built:{用户ID} 标记该用户的历史订单已全部导入，
+ * 未标记的用户先从数据库重建再读取。写入失败时删除该用户的读模型，下次读取重建。
+ * 三个键使用相同的过期时间，每次读写同时续期，长期不活跃用户的读模型整体过期，下次读取重建
+ */
+@Slf4j
+@Component
+public class OrderHistoryProjection {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 读模型过期时间（天）
+     */
+    @Value("${order.history.ttl-days:7}")
+    private long ttlDays;
+
+    /**
+     * 写入新订单或状态变更后的订单（当前有事务时在提交后写入）
+     */
+    public void apply(Collection<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Order> snapshot = new ArrayList<>(orders);
+        TransactionUtil.afterCommit(() -> {
+            try {
+                write(snapshot, false);
+            } catch (Exception e) {
+                Set<Long> userIds = new LinkedHashSet<>();
+                for (Order order : snapshot) {
+                    userIds.add(order.getUserId());
+                }
+                log.warn("写入用户订单列表失败，删除读模型：用户{}，{}", userIds, e.getMessage());
+                evict(userIds);
+            }
+        });
+    }
+
+    /**
+     * 分页读取用户订单（倒序），该用户的读模型未构建时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Page<Order> getPage(Long userId, long pageNum, long pageSize) {
+        long start = (Math.max(pageNum, 1) - 1) * pageSize;
+        String historyKey = RedisKeyConstant.buildOrderHistoryKey(userId);
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.hasKey(RedisKeyConstant.buildOrderHistoryBuiltKey(userId));
+                ops.opsForZSet().zCard(historyKey);
+                ops.opsForZSet().reverseRange(historyKey, start, start + pageSize - 1);
+                touch(ops, userId);
+                return null;
+            }
+        });
+        if (!Boolean.TRUE.equals(results.get(0))) {
+            return null;
+        }
+
+        Page<Order> page = new Page<>(pageNum, pageSize, ((Number) results.get(1)).longValue());
+        Set<Object> orderNos = (Set<Object>) results.get(2);
+        List<Order> records = new ArrayList<>(orderNos.size());
+        if (!orderNos.isEmpty()) {
+            List<Object> summaries = redisTemplate.opsForHash()
+                    .multiGet(RedisKeyConstant.buildOrderHistorySummaryKey(userId), orderNos);
+            for (Object summary : summaries) {
+                if (summary != null) {
+                    records.add(((OrderSummaryVO) summary).toOrder(userId));
+                }
+            }
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 导入用户的一批历史订单（只补充缺失的订单，不覆盖并发写入的状态变更）
+     */
+    public void load(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            write(orders, true);
+        }
+    }
+
+    /**
+     * 标记用户的历史订单已全部导入
+     */
+    public void markBuilt(Long userId) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForValue().set(RedisKeyConstant.buildOrderHistoryBuiltKey(userId), 1);
+                touch(ops, userId);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 删除用户的读模型（标记、订单列表、摘要）
+     */
+    public void evict(Collection<Long> userIds) {
+        List<String> keys = new ArrayList<>(userIds.size() * 3);
+        for (Long userId : userIds) {
+            keys.add(RedisKeyConstant.buildOrderHistoryBuiltKey(userId));
+            keys.add(RedisKeyConstant.buildOrderHistoryKey(userId));
+            keys.add(RedisKeyConstant.buildOrderHistorySummaryKey(userId));
+        }
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.error("删除用户订单列表失败：{}", userIds, e);
+        }
+    }
+
+    private void write(List<Order> orders, boolean ifAbsent) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                Set<Long> userIds = new LinkedHashSet<>();
+                for (Order order : orders) {
+                    userIds.add(order.getUserId());
+                    String historyKey = RedisKeyConstant.buildOrderHistoryKey(order.getUserId());
+                    String summaryKey = RedisKeyConstant.buildOrderHistorySummaryKey(order.getUserId());
+                    OrderSummaryVO summary = OrderSummaryVO.of(order);
+                    if (ifAbsent) {
+                        ops.opsForZSet().addIfAbsent(historyKey, order.getOrderNo(), scoreOf(order.getCreateTime()));
+                        ops.opsForHash().putIfAbsent(summaryKey, order.getOrderNo(), summary);
+                    } else {
+                        ops.opsForZSet().add(historyKey, order.getOrderNo(), scoreOf(order.getCreateTime()));
+                        ops.opsForHash().put(summaryKey, order.getOrderNo(), summary);
+                    }
+                }
+                for (Long userId : userIds) {
+                    touch(ops, userId);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 续期用户的读模型（标记、订单列表、摘要同时续期，不存在的键忽略）
+     */
+    private void touch(RedisOperations<String, Object> ops, Long userId) {
+        ops.expire(RedisKeyConstant.buildOrderHistoryBuiltKey(userId), ttlDays, TimeUnit.DAYS);
+        ops.expire(RedisKeyConstant.buildOrderHistoryKey(userId), ttlDays, TimeUnit.DAYS);
+        ops.expire(RedisKeyConstant.buildOrderHistorySummaryKey(userId), ttlDays, TimeUnit.DAYS);
+    }
+
+    private double scoreOf(LocalDateTime createTime) {
+        LocalDateTime time = createTime == null ? LocalDateTime.now() : createTime;
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.order.projection;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.mapper.OrderArchiveMapper;
+import com.ecommerce.order.mapper.OrderMapper;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户订单列表重建
+ *
+ * 单个用户：沿 idx_user_create 索引分批读取该用户的订单（热表和归档表）导入读模型后打上已构建标记（读取时未构建自动触发）；
+ * 全量：逐个分库按用户ID顺序回放 tb_order，重建所有用户（Redis数据丢失后执行，可重复执行）。
+ * 导入只补充缺失的订单，不覆盖并发写入的状态变更
+ */
+@Slf4j
+@Component
+public class OrderHistoryRebuilder {
+
+    @Autowired
+    private OrderHistoryProjection orderHistoryProjection;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    /**
+     * 每批读取的订单数/用户数
+     */
+    @Value("${order.history.rebuild-batch-size:500}")
+    private int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-history-rebuilder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong rebuiltUsers = new AtomicLong();
+
+    private volatile boolean running;
+
+    private volatile int shard;
+
+    private volatile long lastUserId;
+
+    private volatile String lastError;
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+    }
+
+    /**
+     * 重建单个用户的订单列表
+     */
+    public void rebuildUser(Long userId) {
+        int userShard = orderShardRouter.shardOfUser(userId);
+        load(userId, userShard, orderMapper::selectUserOrdersAfter);
+        load(userId, userShard, orderArchiveMapper::selectUserOrdersAfter);
+        orderHistoryProjection.markBuilt(userId);
+    }
+
+    /**
+     * 按游标分批读取用户订单并导入读模型
+     */
+    private void load(Long userId, int userShard, UserOrderQuery query) {
+        LocalDateTime createTime = null;
+        Long id = null;
+        while (true) {
+            LocalDateTime afterTime = createTime;
+            Long afterId = id;
+            List<Order> orders = orderShardRouter.execute(userShard,
+                    () -> query.select(userId, afterTime, afterId, batchSize));
+            for (Order order : orders) {
+                order.setUserId(userId);
+            }
+            orderHistoryProjection.load(orders);
+            if (orders.size() < batchSize) {
+                break;
+            }
+            Order last = orders.get(orders.size() - 1);
+            createTime = last.getCreateTime();
+            id = last.getId();
+        }
+    }
+
+    /**
+     * 启动全量重建（后台执行）
+     * @param force 是否先删除已有读模型（修复不一致时使用）
+     * @return 已在执行时返回false
+     */
+    public synchronized boolean start(boolean force) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        lastError = null;
+        rebuiltUsers.set(0);
+        executor.submit(() -> rebuildAll(force));
+        return true;
+    }
+
+    /**
+     * 全量重建进度
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", running);
+        progress.put("shard", shard);
+        progress.put("lastUserId", lastUserId);
+        progress.put("rebuiltUsers", rebuiltUsers.get());
+        progress.put("error", lastError);
+        return progress;
+    }
+
+    private void rebuildAll(boolean force) {
+        try {
+            log.info("用户订单列表全量重建开始：分库数{}，删除已有读模型：{}", orderShardRouter.getShardCount(), force);
+            for (int i = 0; i < orderShardRouter.getShardCount() && running; i++) {
+                int current = i;
+                shard = current;
+                lastUserId = 0;
+                while (running) {
+                    long afterUserId = lastUserId;
+                    List<Long> userIds = orderShardRouter.execute(current,
+                            () -> orderMapper.selectUserIdsAfter(afterUserId, batchSize));
+                    if (userIds.isEmpty()) {
+                        break;
+                    }
+                    for (Long userId : userIds) {
+                        if (force) {
+                            orderHistoryProjection.evict(Collections.singletonList(userId));
+                        }
+                        rebuildUser(userId);
+                        rebuiltUsers.incrementAndGet();
+                    }
+                    lastUserId = userIds.get(userIds.size() - 1);
+                }
+            }
+            log.info("用户订单列表全量重建结束：重建{}个用户", rebuiltUsers.get());
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("用户订单列表全量重建失败：分库{}，最后用户{}", shard, lastUserId, e);
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * 用户订单游标查询（热表/归档表）
+     */
+    @FunctionalInterface
+    private interface UserOrderQuery {
+        List<Order> select(Long userId, LocalDateTime createTime, Long id, int limit);
+    }
+}
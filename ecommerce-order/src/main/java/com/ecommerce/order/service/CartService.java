@@ -0,0 +1,40 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.vo.CartItemVO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车服务接口
+ */
+public interface CartService {
+
+    /**
+     * 加入购物车（数量累加）
+     */
+    void addItem(Long userId, Long productId, Integer quantity);
+
+    /**
+     * 修改购物车商品数量
+     */
+    void updateItem(Long userId, Long productId, Integer quantity);
+
+    /**
+     * 移除购物车商品
+     */
+    void removeItems(Long userId, Collection<Long> productIds);
+
+    /**
+     * 查询购物车（商品信息一次批量查询）
+     */
+    List<CartItemVO> getCart(Long userId);
+
+    /**
+     * 查询购物车商品数量
+     * @param productIds 指定商品（为空则返回整个购物车）
+     * @return 商品ID -> 数量（保持购物车顺序）
+     */
+    Map<Long, Integer> getCartLines(Long userId, List<Long> productIds);
+}
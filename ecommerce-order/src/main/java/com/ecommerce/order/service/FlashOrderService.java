@@ -0,0 +1,44 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CreateOrderDTO;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.vo.OrderTicketVO;
+
+import java.util.List;
+
+/**
+ * 秒杀排队下单服务接口
+ */
+public interface FlashOrderService {
+
+    /**
+     * 预热秒杀库存（从商品服务预扣库存并缓存商品快照）
+     */
+    void preloadStock(Long productId, Integer quantity);
+
+    /**
+     * 结束秒杀，归还剩余库存
+     * @return 归还的库存数量
+     */
+    long releaseStock(Long productId);
+
+    /**
+     * 排队下单：Redis中完成幂等校验与库存预扣，消息异步落库
+     */
+    OrderTicketVO createQueuedOrder(Long userId, CreateOrderDTO createOrderDTO);
+
+    /**
+     * 查询排队结果
+     */
+    OrderTicketVO getQueuedResult(String orderNo);
+
+    /**
+     * 批量落库排队订单（消费者调用）
+     */
+    void persistQueuedOrders(List<Order> orders);
+
+    /**
+     * 排队订单放弃落库（消息停放时调用）：归还预扣的秒杀库存并标记排队失败，已落库的订单只标记成功
+     */
+    void failQueuedOrder(String orderNo, Long productId, Integer quantity);
+}
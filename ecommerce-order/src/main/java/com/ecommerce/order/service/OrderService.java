@@ -1,8 +1,14 @@
 package com.ecommerce.order.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ecommerce.order.dto.CartCheckoutDTO;
 import com.ecommerce.order.dto.CreateOrderDTO;
+import com.ecommerce.order.dto.PaymentNotifyDTO;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.vo.CursorPageVO;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 订单服务接口
@@ -15,25 +21,54 @@ public interface OrderService {
     Order createOrder(Long userId, CreateOrderDTO createOrderDTO);
 
     /**
-     * 支付订单
+     * 购物车结算：批量查询商品、批量预占库存，生成一个多明细订单
+     */
+    Order createCartOrder(Long userId, CartCheckoutDTO checkoutDTO);
+
+    /**
+     * 支付订单（条件更新，仅待支付订单可支付）
      */
     boolean payOrder(String orderNo);
 
     /**
-     * 取消订单
+     * 批量处理支付回调：每个分库一条条件UPDATE，已支付/已取消的订单跳过
+     * @return 实际支付的订单数
+     */
+    int payOrders(List<PaymentNotifyDTO> notifies);
+
+    /**
+     * 取消订单（条件更新，仅待支付订单可取消）
      */
     boolean cancelOrder(String orderNo);
 
     /**
-     * 查询订单
+     * 批量取消超时未支付订单：每个分库一条条件UPDATE，库存按商品汇总后一次归还
+     * @return 实际取消的订单数
+     */
+    int cancelTimeoutOrders(Collection<String> orderNos);
+
+    /**
+     * 查询订单（读缓存，含订单明细）
      */
     Order getOrderByOrderNo(String orderNo);
 
     /**
-     * 分页查询用户订单
+     * 查询订单详情（读缓存，含订单明细）
+     */
+    Order getOrderDetail(String orderNo);
+
+    /**
+     * 分页查询用户订单（从Redis读模型读取，只返回列表展示字段）
      */
     Page<Order> getUserOrders(Long userId, Integer pageNum, Integer pageSize);
 
+    /**
+     * 游标分页查询用户订单（按创建时间倒序，页深不影响查询耗时）
+     * @param cursor 上一页返回的游标，首页为空
+     * @param withTotal 是否统计总数
+     */
+    CursorPageVO<Order> getUserOrdersByCursor(Long userId, String cursor, Integer pageSize, boolean withTotal);
+
     /**
      * 生成幂等性Token
      */
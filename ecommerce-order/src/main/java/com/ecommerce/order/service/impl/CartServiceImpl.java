@@ -0,0 +1,127 @@
+package com.ecommerce.order.service.impl;
+
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.order.feign.ProductAsyncClient;
+import com.ecommerce.order.service.CartService;
+import com.ecommerce.order.vo.CartItemVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车服务实现（Redis Hash：cart:{userId} -> {productId: quantity}）
+ */
+@Slf4j
+@Service
+public class CartServiceImpl implements CartService {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ProductAsyncClient productAsyncClient;
+
+    @Override
+    public void addItem(Long userId, Long productId, Integer quantity) {
+        checkQuantity(quantity);
+        hashOps().increment(RedisKeyConstant.buildCartKey(userId), String.valueOf(productId), quantity);
+    }
+
+    @Override
+    public void updateItem(Long userId, Long productId, Integer quantity) {
+        checkQuantity(quantity);
+        hashOps().put(RedisKeyConstant.buildCartKey(userId), String.valueOf(productId), quantity);
+    }
+
+    @Override
+    public void removeItems(Long userId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        Object[] fields = productIds.stream().map(String::valueOf).toArray();
+        hashOps().delete(RedisKeyConstant.buildCartKey(userId), fields);
+    }
+
+    @Override
+    public List<CartItemVO> getCart(Long userId) {
+        Map<Long, Integer> lines = getCartLines(userId, null);
+        if (lines.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 批量查询购物车中所有商品（商品较多时分批并行）
+        List<ProductBriefDTO> products = ProductAsyncClient.join(productAsyncClient.getProductByIds(lines.keySet()));
+        Map<Long, ProductBriefDTO> productMap = new HashMap<>();
+        for (ProductBriefDTO product : products) {
+            productMap.put(product.getId(), product);
+        }
+
+        List<CartItemVO> items = new ArrayList<>(lines.size());
+        lines.forEach((productId, quantity) -> {
+            CartItemVO item = new CartItemVO();
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            ProductBriefDTO product = productMap.get(productId);
+            if (product != null) {
+                item.setProductName(product.getName());
+                item.setProductPrice(product.getPrice());
+                item.setMainImage(product.getMainImage());
+                item.setAvailable(Integer.valueOf(1).equals(product.getStatus())
+                        && product.getStock() != null && product.getStock() >= quantity);
+            } else {
+                item.setAvailable(false);
+            }
+            items.add(item);
+        });
+        return items;
+    }
+
+    @Override
+    public Map<Long, Integer> getCartLines(Long userId, List<Long> productIds) {
+        String cartKey = RedisKeyConstant.buildCartKey(userId);
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+
+        if (productIds == null || productIds.isEmpty()) {
+            Map<String, Object> entries = hashOps().entries(cartKey);
+            entries.forEach((productId, quantity) ->
+                    lines.put(Long.valueOf(productId), ((Number) quantity).intValue()));
+            return lines;
+        }
+
+        List<String> fields = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            fields.add(String.valueOf(productId));
+        }
+        List<Object> quantities = hashOps().multiGet(cartKey, fields);
+        for (int i = 0; i < productIds.size(); i++) {
+            Object quantity = quantities.get(i);
+            if (quantity != null) {
+                lines.put(productIds.get(i), ((Number) quantity).intValue());
+            }
+        }
+        return lines;
+    }
+
+    private HashOperations<String, String, Object> hashOps() {
+        return redisTemplate.opsForHash();
+    }
+
+    private void checkQuantity(Integer quantity) {
+        if (quantity == null || quantity < 1) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "购买数量至少为1");
+        }
+    }
+}
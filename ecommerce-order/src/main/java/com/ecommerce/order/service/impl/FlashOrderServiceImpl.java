@@ -0,0 +1,320 @@
+package com.ecommerce.order.service.impl;
+
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.common.result.Result;
+import com.ecommerce.order.dto.CreateOrderDTO;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderOutbox;
+import com.ecommerce.order.event.OrderChangedEvent;
+import com.ecommerce.order.feign.ProductFeignClient;
+import com.ecommerce.order.idempotent.IdempotentTokenManager;
+import com.ecommerce.order.mapper.OrderMapper;
+import com.ecommerce.order.mq.OrderMessageProducer;
+import com.ecommerce.order.outbox.OrderOutboxWriter;
+import com.ecommerce.order.projection.OrderHistoryProjection;
+import com.ecommerce.order.service.FlashOrderService;
+import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import com.ecommerce.order.vo.OrderTicketVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀排队下单服务实现
+ *
+ * 请求线程只做Redis脚本与消息投递，订单由消费者批量落库，数据库写入速率与请求速率解耦
+ */
+@Slf4j
+@Service
+public class FlashOrderServiceImpl implements FlashOrderService {
+
+    /**
+     * 校验幂等Token、预扣秒杀库存并写入排队状态
+     * ARGV[4]为1时是签名Token：KEYS[1]为占用标记，存在即重复，成功后以ARGV[5]毫秒过期写入；否则KEYS[1]为Token，成功后删除
+     * 返回值：-1 未开启秒杀，-2 库存不足，-3 重复请求，>=0 扣减后剩余库存
+     */
+    private static final DefaultRedisScript<Long> ACCEPT_SCRIPT = new DefaultRedisScript<>(
+            "local signed = ARGV[4] == '1' " +
+            "if (redis.call('exists', KEYS[1]) == 1) == signed then " +
+            "    return -3 " +
+            "end " +
+            "local stock = redis.call('get', KEYS[2]) " +
+            "if not stock then " +
+            "    return -1 " +
+            "end " +
+            "local quantity = tonumber(ARGV[1]) " +
+            "if tonumber(stock) < quantity then " +
+            "    return -2 " +
+            "end " +
+            "if signed then " +
+            "    redis.call('set', KEYS[1], 1, 'PX', tonumber(ARGV[5])) " +
+            "else " +
+            "    redis.call('del', KEYS[1]) " +
+            "end " +
+            "local remain = redis.call('decrby', KEYS[2], quantity) " +
+            "redis.call('set', KEYS[3], ARGV[2], 'EX', tonumber(ARGV[3])) " +
+            "return remain",
+            Long.class);
+
+    /**
+     * 取出并删除剩余秒杀库存
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('get', KEYS[1]) " +
+            "if not stock then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('del', KEYS[1]) " +
+            "return tonumber(stock)",
+            Long.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ProductFeignClient productFeignClient;
+
+    @Autowired
+    private OrderMessageProducer orderMessageProducer;
+
+    @Autowired
+    private OrderOutboxWriter orderOutboxWriter;
+
+    @Autowired
+    private OrderHistoryProjection orderHistoryProjection;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private IdempotentTokenManager idempotentTokenManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * 排队结果保留时间（秒）
+     */
+    @Value("${order.flash.result-ttl:1800}")
+    private long resultTtl;
+
+    @Override
+    public void preloadStock(Long productId, Integer quantity) {
+        // 一次性从商品服务预扣整批库存
+        Result<ProductSnapshotDTO> reserveResult = productFeignClient.reserveStock(productId, quantity);
+        if (reserveResult == null || !ResultCode.SUCCESS.getCode().equals(reserveResult.getCode())
+                || reserveResult.getData() == null) {
+            String message = reserveResult == null ? "预热秒杀库存失败" : reserveResult.getMessage();
+            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH.getCode(), message);
+        }
+
+        redisTemplate.opsForValue().set(RedisKeyConstant.FLASH_PRODUCT_PREFIX + productId, reserveResult.getData());
+        redisTemplate.opsForValue().increment(RedisKeyConstant.FLASH_STOCK_PREFIX + productId, quantity);
+        log.info("预热秒杀库存：商品ID={}, 数量={}", productId, quantity);
+    }
+
+    @Override
+    public long releaseStock(Long productId) {
+        Long remain = redisTemplate.execute(RELEASE_SCRIPT,
+                Collections.singletonList(RedisKeyConstant.FLASH_STOCK_PREFIX + productId));
+        long quantity = remain == null ? 0 : remain;
+        if (quantity > 0) {
+            productFeignClient.addStock(productId, (int) quantity);
+        }
+        redisTemplate.delete(RedisKeyConstant.FLASH_PRODUCT_PREFIX + productId);
+        log.info("结束秒杀，归还库存：商品ID={}, 数量={}", productId, quantity);
+        return quantity;
+    }
+
+    @Override
+    public OrderTicketVO createQueuedOrder(Long userId, CreateOrderDTO createOrderDTO) {
+        Long productId = createOrderDTO.getProductId();
+        Integer quantity = createOrderDTO.getQuantity();
+
+        ProductSnapshotDTO product = (ProductSnapshotDTO) redisTemplate.opsForValue()
+                .get(RedisKeyConstant.FLASH_PRODUCT_PREFIX + productId);
+        if (product == null) {
+            throw new BusinessException(ResultCode.FLASH_SALE_NOT_OPEN);
+        }
+
+        // 1. 幂等校验 + 预扣库存 + 写入排队状态（一次Redis往返，签名Token先本地验签）
+        String orderNo = orderShardRouter.generateOrderNo(userId);
+        String stockKey = RedisKeyConstant.FLASH_STOCK_PREFIX + productId;
+        String token = createOrderDTO.getIdempotentToken();
+        boolean signed = idempotentTokenManager.isSigned();
+        long tokenRemaining = signed ? idempotentTokenManager.verify(userId, token) : 0;
+        List<String> keys = Arrays.asList(
+                signed ? idempotentTokenManager.consumedKey(token) : RedisKeyConstant.buildIdempotentTokenKey(token),
+                stockKey,
+                RedisKeyConstant.FLASH_RESULT_PREFIX + orderNo);
+        Long remain = redisTemplate.execute(ACCEPT_SCRIPT, keys,
+                quantity, OrderTicketVO.STATUS_PENDING, resultTtl, signed ? 1 : 0, tokenRemaining);
+        if (remain == null || remain == -1) {
+            throw new BusinessException(ResultCode.FLASH_SALE_NOT_OPEN);
+        }
+        if (remain == -2) {
+            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+        }
+        if (remain == -3) {
+            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
+        }
+
+        // 2. 投递下单消息，由消费者批量落库
+        Order order = new Order();
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setProductId(productId);
+        order.setProductName(product.getName());
+        order.setProductPrice(product.getPrice());
+        order.setQuantity(quantity);
+        order.setTotalAmount(product.getPrice().multiply(new BigDecimal(quantity)));
+        order.setStatus(0); // 待支付
+        order.setAddress(createOrderDTO.getAddress());
+        order.setReceiver(createOrderDTO.getReceiver());
+        order.setReceiverPhone(createOrderDTO.getReceiverPhone());
+        order.setRemark(createOrderDTO.getRemark());
+        order.setCreateTime(LocalDateTime.now());
+
+        try {
+            orderMessageProducer.sendFlashOrderMessage(order);
+        } catch (Exception e) {
+            // 投递失败：归还预扣库存并标记失败
+            log.error("投递排队订单失败：{}", orderNo, e);
+            redisTemplate.opsForValue().increment(stockKey, quantity);
+            redisTemplate.opsForValue().set(RedisKeyConstant.FLASH_RESULT_PREFIX + orderNo,
+                    OrderTicketVO.STATUS_FAILED, resultTtl, TimeUnit.SECONDS);
+            throw new BusinessException("下单排队失败，请重试");
+        }
+
+        log.debug("排队下单受理：orderNo={}, 剩余秒杀库存={}", orderNo, remain);
+        return new OrderTicketVO(orderNo, OrderTicketVO.STATUS_PENDING);
+    }
+
+    @Override
+    public OrderTicketVO getQueuedResult(String orderNo) {
+        Integer status = (Integer) redisTemplate.opsForValue().get(RedisKeyConstant.FLASH_RESULT_PREFIX + orderNo);
+        if (status != null) {
+            return new OrderTicketVO(orderNo, status);
+        }
+
+        // 排队结果已过期，以数据库为准
+        Order order = orderService.getOrderByOrderNo(orderNo);
+        if (order == null) {
+            throw new BusinessException(ResultCode.ORDER_NOT_EXIST);
+        }
+        return new OrderTicketVO(orderNo, OrderTicketVO.STATUS_SUCCESS);
+    }
+
+    @Override
+    public void persistQueuedOrders(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        // 按分库分组，每个分库内订单号登记、订单与发件箱事件各一条多行INSERT、一次提交
+        Map<Integer, List<Order>> ordersByShard =
+                orderShardRouter.groupByShard(orders, order -> orderShardRouter.shardOfOrderNo(order.getOrderNo()));
+        List<Order> inserted = new ArrayList<>(orders.size());
+        ordersByShard.forEach((shard, shardOrders) -> inserted.addAll(orderShardRouter.execute(shard,
+                () -> transactionTemplate.execute(status -> insertFreshOrders(shardOrders)))));
+
+        // 更新排队结果（管道批量写入，已落库的重复消息同样标记成功）
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (Order order : orders) {
+                    ops.opsForValue().set(RedisKeyConstant.FLASH_RESULT_PREFIX + order.getOrderNo(),
+                            OrderTicketVO.STATUS_SUCCESS, resultTtl, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        });
+
+        // 只为本次实际写入的订单写入用户订单列表、发布订单变更事件（重复投递的订单已在首次落库时发布）
+        if (inserted.isEmpty()) {
+            return;
+        }
+        orderHistoryProjection.apply(inserted);
+        applicationEventPublisher.publishEvent(new OrderChangedEvent(inserted));
+
+        log.info("排队订单批量落库：{}条，跳过已落库{}条", inserted.size(), orders.size() - inserted.size());
+    }
+
+    @Override
+    public void failQueuedOrder(String orderNo, Long productId, Integer quantity) {
+        String resultKey = RedisKeyConstant.FLASH_RESULT_PREFIX + orderNo;
+        // 落库已提交但之后的步骤失败时订单已存在，不能再归还库存
+        List<String> existing = orderShardRouter.execute(orderShardRouter.shardOfOrderNo(orderNo),
+                () -> orderMapper.selectExistingOrderNos(Collections.singletonList(orderNo)));
+        if (!existing.isEmpty()) {
+            redisTemplate.opsForValue().set(resultKey, OrderTicketVO.STATUS_SUCCESS, resultTtl, TimeUnit.SECONDS);
+            return;
+        }
+
+        redisTemplate.opsForValue().increment(RedisKeyConstant.FLASH_STOCK_PREFIX + productId, quantity);
+        redisTemplate.opsForValue().set(resultKey, OrderTicketVO.STATUS_FAILED, resultTtl, TimeUnit.SECONDS);
+        log.warn("排队订单放弃落库，归还秒杀库存：orderNo={}, 商品ID={}, 数量={}", orderNo, productId, quantity);
+    }
+
+    /**
+     * 跳过已登记订单号的订单（消息重复投递），其余登记订单号后写入订单和超时调度事件
+     * （30分钟后检查订单状态，未支付则自动取消）；并发重复投递时登记冲突使整批回滚，由消费者逐条重试
+     * @return 本次实际写入的订单
+     */
+    private List<Order> insertFreshOrders(List<Order> orders) {
+        List<String> orderNos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderNos.add(order.getOrderNo());
+        }
+        Set<String> existing = new HashSet<>(orderMapper.selectExistingOrderNos(orderNos));
+
+        List<Order> fresh = new ArrayList<>(orders.size());
+        List<OrderOutbox> events = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (existing.add(order.getOrderNo())) {
+                fresh.add(order);
+                events.add(orderOutboxWriter.timeoutEvent(order.getOrderNo(), 30 * 60 * 1000));
+            }
+        }
+        if (fresh.isEmpty()) {
+            return fresh;
+        }
+        orderMapper.registerOrderNos(fresh);
+        orderMapper.insertBatch(fresh);
+        orderOutboxWriter.save(events);
+        return fresh;
+    }
+}
@@ -1,28 +1,61 @@
 package com.ecommerce.order.service.impl;
 
-import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.dto.StockLineDTO;
 import com.ecommerce.common.exception.BusinessException;
 import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.common.result.Result;
+import com.ecommerce.common.utils.TransactionUtil;
+import com.ecommerce.order.cache.OrderCache;
+import com.ecommerce.order.dto.CartCheckoutDTO;
 import com.ecommerce.order.dto.CreateOrderDTO;
+import com.ecommerce.order.dto.PaymentNotifyDTO;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderItem;
+import com.ecommerce.order.entity.OrderOutbox;
+import com.ecommerce.order.event.OrderChangedEvent;
+import com.ecommerce.order.feign.ProductAsyncClient;
 import com.ecommerce.order.feign.ProductFeignClient;
+import com.ecommerce.order.idempotent.IdempotentTokenManager;
+import com.ecommerce.order.mapper.OrderArchiveMapper;
+import com.ecommerce.order.mapper.OrderItemMapper;
 import com.ecommerce.order.mapper.OrderMapper;
-import com.ecommerce.order.mq.OrderMessageProducer;
+import com.ecommerce.order.outbox.OrderOutboxWriter;
+import com.ecommerce.order.projection.OrderHistoryProjection;
+import com.ecommerce.order.projection.OrderHistoryRebuilder;
+import com.ecommerce.order.service.CartService;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import com.ecommerce.order.timeout.OrderTimeoutScheduler;
+import com.ecommerce.order.vo.CursorPageVO;
+import com.ecommerce.order.writer.OrderBatchWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 订单服务实现
@@ -35,56 +68,85 @@ public class OrderServiceImpl implements OrderService {
     private OrderMapper orderMapper;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private ProductFeignClient productFeignClient;
 
     @Autowired
-    private ProductFeignClient productFeignClient;
+    private ProductAsyncClient productAsyncClient;
+
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
+
+    @Autowired
+    private OrderBatchWriter orderBatchWriter;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderOutboxWriter orderOutboxWriter;
+
+    @Autowired
+    private OrderCache orderCache;
+
+    @Autowired
+    private OrderHistoryProjection orderHistoryProjection;
+
+    @Autowired
+    private OrderHistoryRebuilder orderHistoryRebuilder;
 
     @Autowired
-    private OrderMessageProducer orderMessageProducer;
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private IdempotentTokenManager idempotentTokenManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * 是否开启订单组提交
+     */
+    @Value("${order.batch-writer.enabled:false}")
+    private boolean batchWriterEnabled;
+
+    /**
+     * 等待组提交完成的超时时间（毫秒）
+     */
+    @Value("${order.batch-writer.wait-timeout:3000}")
+    private long batchWriterWaitTimeout;
+
+    /**
+     * 用户订单列表是否从Redis读模型读取
+     */
+    @Value("${order.history.enabled:true}")
+    private boolean historyEnabled;
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public Order createOrder(Long userId, CreateOrderDTO createOrderDTO) {
         // 1. 幂等性校验
-        String tokenKey = RedisKeyConstant.buildIdempotentTokenKey(createOrderDTO.getIdempotentToken());
-        Boolean deleted = redisTemplate.delete(tokenKey);
-        if (!Boolean.TRUE.equals(deleted)) {
-            throw new BusinessException(ResultCode.DUPLICATE_REQUEST);
-        }
-
-        // 2. 查询商品信息（通过Feign调用商品服务）
-        Map<String, Object> productResult = productFeignClient.getProductById(createOrderDTO.getProductId());
-        if (productResult == null || productResult.get("data") == null) {
-            throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
-        }
-        
-        @SuppressWarnings("unchecked")
-        Map<String, Object> product = (Map<String, Object>) productResult.get("data");
-        BigDecimal price = new BigDecimal(product.get("price").toString());
-        String productName = product.get("name").toString();
-
-        // 3. 检查库存
-        Boolean stockEnough = productFeignClient.checkStock(
-                createOrderDTO.getProductId(), 
-                createOrderDTO.getQuantity()
-        );
-        if (!Boolean.TRUE.equals(stockEnough)) {
-            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
-        }
+        idempotentTokenManager.consume(userId, createOrderDTO.getIdempotentToken());
 
-        // 4. 扣减库存
-        Boolean deductResult = productFeignClient.deductStock(
-                createOrderDTO.getProductId(), 
+        // 2. 预占库存（商品服务一次完成校验、扣减并返回商品快照）
+        Result<ProductSnapshotDTO> reserveResult = productFeignClient.reserveStock(
+                createOrderDTO.getProductId(),
                 createOrderDTO.getQuantity()
         );
-        if (!Boolean.TRUE.equals(deductResult)) {
-            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
-        }
+        ProductSnapshotDTO product = unwrap(reserveResult, ResultCode.PRODUCT_NOT_EXIST);
+        BigDecimal price = product.getPrice();
+        String productName = product.getName();
 
-        // 5. 创建订单
+        // 3. 创建订单
         Order order = new Order();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(orderShardRouter.generateOrderNo(userId));
         order.setUserId(userId);
         order.setProductId(createOrderDTO.getProductId());
         order.setProductName(productName);
@@ -96,99 +158,532 @@ public class OrderServiceImpl implements OrderService {
         order.setReceiver(createOrderDTO.getReceiver());
         order.setReceiverPhone(createOrderDTO.getReceiverPhone());
         order.setRemark(createOrderDTO.getRemark());
+        order.setCreateTime(LocalDateTime.now());
 
-        int result = orderMapper.insert(order);
-        if (result <= 0) {
-            throw new BusinessException("创建订单失败");
+        // 4. 订单与超时调度事件（30分钟后检查订单状态，未支付则自动取消）在同一事务中写入，由发件箱中继投递
+        OrderOutbox timeoutEvent = orderOutboxWriter.timeoutEvent(order.getOrderNo(), 30 * 60 * 1000);
+        // 落库后写入缓存（下单后客户端立即轮询订单状态）和用户订单列表
+        persistOrder(order, Collections.singletonList(timeoutEvent),
+                Collections.singletonList(new StockLineDTO(createOrderDTO.getProductId(), createOrderDTO.getQuantity())));
+
+        log.info("订单创建成功：{}", order.getOrderNo());
+        return order;
+    }
+
+    @Override
+    public Order createCartOrder(Long userId, CartCheckoutDTO checkoutDTO) {
+        // 1. 幂等性校验
+        idempotentTokenManager.consume(userId, checkoutDTO.getIdempotentToken());
+
+        // 2. 读取购物车
+        Map<Long, Integer> cartLines = cartService.getCartLines(userId, checkoutDTO.getProductIds());
+        if (cartLines.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "购物车为空");
         }
 
-        // 6. 发送延迟消息（30分钟后检查订单状态，未支付则自动取消）
-        orderMessageProducer.sendOrderTimeoutMessage(order.getOrderNo(), 30 * 60 * 1000);
+        // 3. 批量查询商品（商品较多时分批并行）
+        List<ProductBriefDTO> products = ProductAsyncClient.join(productAsyncClient.getProductByIds(cartLines.keySet()));
+        Map<Long, ProductBriefDTO> productMap = new HashMap<>();
+        for (ProductBriefDTO product : products) {
+            productMap.put(product.getId(), product);
+        }
 
-        log.info("订单创建成功：{}", order.getOrderNo());
+        String orderNo = orderShardRouter.generateOrderNo(userId);
+        List<OrderItem> items = new ArrayList<>(cartLines.size());
+        List<StockLineDTO> stockLines = new ArrayList<>(cartLines.size());
+        for (Map.Entry<Long, Integer> line : cartLines.entrySet()) {
+            ProductBriefDTO product = productMap.get(line.getKey());
+            if (product == null || !Integer.valueOf(1).equals(product.getStatus())) {
+                throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST.getCode(),
+                        "商品不存在或已下架：" + line.getKey());
+            }
+            OrderItem item = new OrderItem();
+            item.setOrderNo(orderNo);
+            item.setProductId(product.getId());
+            item.setProductName(product.getName());
+            item.setProductPrice(product.getPrice());
+            item.setQuantity(line.getValue());
+            item.setTotalAmount(product.getPrice().multiply(new BigDecimal(line.getValue())));
+            items.add(item);
+            stockLines.add(new StockLineDTO(product.getId(), line.getValue()));
+        }
+
+        // 4. 批量预占库存（一次调用，全部成功或全部失败）
+        unwrap(productFeignClient.reserveStockBatch(stockLines), ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+
+        // 5. 订单头 + 明细 + 超时调度事件在同一事务中写入
+        OrderItem first = items.get(0);
+        Order order = new Order();
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setProductId(first.getProductId());
+        order.setProductName(items.size() > 1
+                ? StrUtil.maxLength(first.getProductName(), 80) + " 等" + items.size() + "件商品"
+                : first.getProductName());
+        order.setProductPrice(first.getProductPrice());
+        order.setQuantity(items.stream().mapToInt(OrderItem::getQuantity).sum());
+        order.setTotalAmount(items.stream().map(OrderItem::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+        order.setStatus(0); // 待支付
+        order.setAddress(checkoutDTO.getAddress());
+        order.setReceiver(checkoutDTO.getReceiver());
+        order.setReceiverPhone(checkoutDTO.getReceiverPhone());
+        order.setRemark(checkoutDTO.getRemark());
+        order.setCreateTime(LocalDateTime.now());
+
+        OrderOutbox timeoutEvent = orderOutboxWriter.timeoutEvent(orderNo, 30 * 60 * 1000);
+        try {
+            orderShardRouter.run(orderShardRouter.shardOfOrderNo(orderNo), () ->
+                    transactionTemplate.executeWithoutResult(status -> {
+                        orderMapper.registerOrderNos(Collections.singletonList(order));
+                        orderMapper.insert(order);
+                        orderItemMapper.insertBatch(items);
+                        orderOutboxWriter.save(Collections.singletonList(timeoutEvent));
+                    }));
+        } catch (RuntimeException e) {
+            compensateStock(orderNo, stockLines);
+            throw e;
+        }
+        order.setItems(items);
+        publishChanges(Collections.singletonList(order));
+
+        // 6. 清理已结算的购物车商品
+        cartService.removeItems(userId, cartLines.keySet());
+
+        log.info("购物车订单创建成功：{}，明细{}条", orderNo, items.size());
         return order;
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean payOrder(String orderNo) {
-        Order order = getOrderByOrderNo(orderNo);
-        if (order == null) {
-            throw new BusinessException(ResultCode.ORDER_NOT_EXIST);
+        Boolean paid = orderShardRouter.execute(orderShardRouter.locateOrder(orderNo),
+                () -> transactionTemplate.execute(status -> doPayOrder(orderNo)));
+        return Boolean.TRUE.equals(paid);
+    }
+
+    /**
+     * 支付订单（在订单所在分库的事务中执行）
+     */
+    private boolean doPayOrder(String orderNo) {
+        // 条件更新：仅待支付订单可支付，与超时取消互斥
+        int result = orderMapper.payPending(orderNo, null, LocalDateTime.now());
+        if (result == 0) {
+            throw new BusinessException(selectByOrderNo(orderNo) == null
+                    ? ResultCode.ORDER_NOT_EXIST : ResultCode.ORDER_STATUS_ERROR);
+        }
+
+        // 提交后撤销超时取消（回滚时保留），更新缓存和用户订单列表
+        TransactionUtil.afterCommit(() -> orderTimeoutScheduler.cancel(orderNo));
+        Order order = selectByOrderNo(orderNo);
+        order.setItems(getOrderItems(orderNo));
+        publishChanges(Collections.singletonList(order));
+        log.info("订单支付成功：{}", orderNo);
+        return true;
+    }
+
+    @Override
+    public int payOrders(List<PaymentNotifyDTO> notifies) {
+        if (notifies == null || notifies.isEmpty() || notifies.size() > 1000) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "支付通知数量需在1~1000之间");
         }
 
-        if (order.getStatus() != 0) {
-            throw new BusinessException(ResultCode.ORDER_STATUS_ERROR);
+        // 同一订单的重复通知只保留第一条
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, PaymentNotifyDTO> uniqueNotifies = new LinkedHashMap<>();
+        for (PaymentNotifyDTO notify : notifies) {
+            if (notify.getPaymentTime() == null) {
+                notify.setPaymentTime(now);
+            }
+            uniqueNotifies.putIfAbsent(notify.getOrderNo(), notify);
         }
 
-        // 更新订单状态为已支付
-        order.setStatus(1);
-        order.setPaymentTime(LocalDateTime.now());
-        int result = orderMapper.updateById(order);
+        int paid = 0;
+        Map<Integer, List<PaymentNotifyDTO>> notifiesByShard = orderShardRouter.groupByShard(
+                uniqueNotifies.values(), notify -> orderShardRouter.locateOrder(notify.getOrderNo()));
+        for (Map.Entry<Integer, List<PaymentNotifyDTO>> entry : notifiesByShard.entrySet()) {
+            Integer count = orderShardRouter.execute(entry.getKey(),
+                    () -> transactionTemplate.execute(status -> payOrdersInShard(entry.getValue())));
+            paid += count == null ? 0 : count;
+        }
+        log.info("批量支付回调：通知{}条，支付成功{}条", uniqueNotifies.size(), paid);
+        return paid;
+    }
 
-        if (result > 0) {
-            log.info("订单支付成功：{}", orderNo);
-            return true;
+    /**
+     * 批量支付同一分库内的订单（在该分库的事务中执行）
+     */
+    private int payOrdersInShard(List<PaymentNotifyDTO> notifies) {
+        // 1. 锁定仍待支付的订单（已支付/已取消的直接跳过），只发布本次支付的订单
+        Map<String, PaymentNotifyDTO> notifyMap = new LinkedHashMap<>();
+        for (PaymentNotifyDTO notify : notifies) {
+            notifyMap.put(notify.getOrderNo(), notify);
         }
+        List<Order> pendingOrders = orderMapper.selectPendingForUpdate(notifyMap.keySet());
+        if (pendingOrders.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 一条条件UPDATE批量支付
+        int paid = orderMapper.payPendingBatch(notifies);
 
-        return false;
+        // 3. 提交后撤销超时取消（回滚时保留），更新缓存和用户订单列表
+        Map<String, List<OrderItem>> itemsByOrder = getOrderItems(notifyMap.keySet());
+        for (Order order : pendingOrders) {
+            PaymentNotifyDTO notify = notifyMap.get(order.getOrderNo());
+            order.setStatus(1);
+            order.setPaymentMethod(notify.getPaymentMethod());
+            order.setPaymentTime(notify.getPaymentTime());
+            order.setItems(itemsByOrder.getOrDefault(order.getOrderNo(), new ArrayList<>()));
+            String orderNo = order.getOrderNo();
+            TransactionUtil.afterCommit(() -> orderTimeoutScheduler.cancel(orderNo));
+        }
+        publishChanges(pendingOrders);
+        return paid;
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean cancelOrder(String orderNo) {
-        Order order = getOrderByOrderNo(orderNo);
-        if (order == null) {
-            throw new BusinessException(ResultCode.ORDER_NOT_EXIST);
-        }
+        Boolean cancelled = orderShardRouter.execute(orderShardRouter.locateOrder(orderNo),
+                () -> transactionTemplate.execute(status -> doCancelOrder(orderNo)));
+        return Boolean.TRUE.equals(cancelled);
+    }
 
-        if (order.getStatus() != 0) {
+    /**
+     * 取消订单（在订单所在分库的事务中执行）
+     */
+    private boolean doCancelOrder(String orderNo) {
+        // 条件更新：仅待支付订单可取消，与支付互斥
+        int result = orderMapper.updateStatus(orderNo, 0, 2);
+        if (result == 0) {
+            if (selectByOrderNo(orderNo) == null) {
+                throw new BusinessException(ResultCode.ORDER_NOT_EXIST);
+            }
             throw new BusinessException(ResultCode.ORDER_CANCEL_FAIL.getCode(), "只能取消待支付订单");
         }
 
-        // 更新订单状态为已取消
-        order.setStatus(2);
-        int result = orderMapper.updateById(order);
+        // 恢复库存（归还事件随取消一起提交，由发件箱中继投递）
+        Order order = selectByOrderNo(orderNo);
+        order.setItems(getOrderItems(orderNo));
+        orderOutboxWriter.save(Collections.singletonList(
+                orderOutboxWriter.stockReleaseEvent(orderNo, buildStockLines(order))));
+        TransactionUtil.afterCommit(() -> orderTimeoutScheduler.cancel(orderNo));
+        publishChanges(Collections.singletonList(order));
+        log.info("订单取消成功：{}", orderNo);
+        return true;
+    }
+
+    @Override
+    public int cancelTimeoutOrders(Collection<String> orderNos) {
+        int cancelled = 0;
+        Map<Integer, List<String>> orderNosByShard =
+                orderShardRouter.groupByShard(orderNos, orderShardRouter::locateOrder);
+        for (Map.Entry<Integer, List<String>> entry : orderNosByShard.entrySet()) {
+            Integer count = orderShardRouter.execute(entry.getKey(),
+                    () -> transactionTemplate.execute(status -> cancelTimeoutOrdersInShard(entry.getValue())));
+            cancelled += count == null ? 0 : count;
+        }
+        return cancelled;
+    }
+
+    /**
+     * 批量取消同一分库内的超时订单（在该分库的事务中执行）
+     */
+    private int cancelTimeoutOrdersInShard(List<String> orderNos) {
+        // 1. 锁定仍待支付的订单（已支付/已取消的直接跳过）
+        List<Order> pendingOrders = orderMapper.selectPendingForUpdate(orderNos);
+        if (pendingOrders.isEmpty()) {
+            return 0;
+        }
+        List<String> pendingOrderNos = new ArrayList<>(pendingOrders.size());
+        for (Order order : pendingOrders) {
+            pendingOrderNos.add(order.getOrderNo());
+        }
 
-        if (result > 0) {
-            // 恢复库存
-            productFeignClient.addStock(order.getProductId(), order.getQuantity());
-            log.info("订单取消成功：{}", orderNo);
-            return true;
+        // 2. 一条条件UPDATE批量取消
+        int cancelled = orderMapper.cancelPendingBatch(pendingOrderNos);
+
+        // 3. 按商品汇总归还库存：一个归还事件随取消一起提交，由发件箱中继投递
+        Map<String, List<OrderItem>> itemsByOrder = getOrderItems(pendingOrderNos);
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (Order order : pendingOrders) {
+            List<OrderItem> items = itemsByOrder.get(order.getOrderNo());
+            if (items == null) {
+                quantities.merge(order.getProductId(), order.getQuantity(), Integer::sum);
+            } else {
+                for (OrderItem item : items) {
+                    quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                }
+            }
+        }
+        List<StockLineDTO> lines = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> lines.add(new StockLineDTO(productId, quantity)));
+        orderOutboxWriter.save(Collections.singletonList(
+                orderOutboxWriter.stockReleaseEvent(pendingOrderNos.get(0), lines)));
+
+        // 4. 提交后更新缓存和用户订单列表
+        for (Order order : pendingOrders) {
+            order.setStatus(2);
+            order.setItems(itemsByOrder.getOrDefault(order.getOrderNo(), new ArrayList<>()));
         }
+        publishChanges(pendingOrders);
 
-        return false;
+        log.info("超时订单批量取消：{}条，归还库存{}个商品", cancelled, lines.size());
+        return cancelled;
     }
 
     @Override
     public Order getOrderByOrderNo(String orderNo) {
-        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Order::getOrderNo, orderNo);
-        return orderMapper.selectOne(wrapper);
+        return orderCache.get(orderNo, this::loadOrderDetail);
+    }
+
+    @Override
+    public Order getOrderDetail(String orderNo) {
+        return getOrderByOrderNo(orderNo);
     }
 
     @Override
     public Page<Order> getUserOrders(Long userId, Integer pageNum, Integer pageSize) {
+        if (historyEnabled) {
+            // 读模型未构建时先从数据库重建（每个用户只重建一次），重建失败时回退到数据库查询
+            Page<Order> history = orderHistoryProjection.getPage(userId, pageNum, pageSize);
+            if (history == null) {
+                try {
+                    orderHistoryRebuilder.rebuildUser(userId);
+                    history = orderHistoryProjection.getPage(userId, pageNum, pageSize);
+                } catch (Exception e) {
+                    log.warn("重建用户订单列表失败，查询数据库：用户{}，{}", userId, e.getMessage());
+                }
+            }
+            if (history != null) {
+                return history;
+            }
+        }
+
         Page<Order> page = new Page<>(pageNum, pageSize);
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Order::getUserId, userId)
                .orderByDesc(Order::getCreateTime);
-        return orderMapper.selectPage(page, wrapper);
+        // 同一用户的订单都在同一分库
+        return orderShardRouter.execute(orderShardRouter.shardOfUser(userId), () -> orderMapper.selectPage(page, wrapper));
+    }
+
+    @Override
+    public CursorPageVO<Order> getUserOrdersByCursor(Long userId, String cursor, Integer pageSize, boolean withTotal) {
+        int size = Math.min(Math.max(pageSize, 1), 100);
+        LocalDateTime createTime = null;
+        Long id = null;
+        if (StrUtil.isNotBlank(cursor)) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_");
+                createTime = LocalDateTime.parse(parts[0]);
+                id = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "分页游标无效");
+            }
+        }
+
+        // 多查一条判断是否还有下一页（同一用户的订单都在同一分库）
+        int shard = orderShardRouter.shardOfUser(userId);
+        LocalDateTime afterTime = createTime;
+        Long afterId = id;
+        List<Order> orders = orderShardRouter.execute(shard,
+                () -> orderMapper.selectUserOrdersAfter(userId, afterTime, afterId, size + 1));
+        boolean hasMore = orders.size() > size;
+        if (hasMore) {
+            orders = orders.subList(0, size);
+        }
+
+        CursorPageVO<Order> page = new CursorPageVO<>();
+        page.setRecords(orders);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            Order last = orders.get(orders.size() - 1);
+            String position = last.getCreateTime() + "_" + last.getId();
+            page.setNextCursor(Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(position.getBytes(StandardCharsets.UTF_8)));
+        }
+        if (withTotal) {
+            LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(Order::getUserId, userId);
+            page.setTotal(orderShardRouter.execute(shard, () -> orderMapper.selectCount(wrapper)));
+        }
+        return page;
     }
 
     @Override
     public String generateIdempotentToken(Long userId) {
-        String token = UUID.randomUUID().toString().replace("-", "");
-        String tokenKey = RedisKeyConstant.buildIdempotentTokenKey(token);
-        // Token有效期5分钟
-        redisTemplate.opsForValue().set(tokenKey, userId, 5, TimeUnit.MINUTES);
-        return token;
+        // Token有效期5分钟（signed模式签发时不写Redis）
+        return idempotentTokenManager.issue(userId);
+    }
+
+    /**
+     * 从数据库查询订单（状态变更前的校验以数据库为准）
+     */
+    private Order selectByOrderNo(String orderNo) {
+        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Order::getOrderNo, orderNo);
+        return orderMapper.selectOne(wrapper);
+    }
+
+    /**
+     * 从数据库加载订单详情（含订单明细），缓存回源使用；热表未命中时查询归档表
+     */
+    private Order loadOrderDetail(String orderNo) {
+        Order order = orderShardRouter.execute(orderShardRouter.locateOrder(orderNo), () -> {
+            Order hot = selectByOrderNo(orderNo);
+            if (hot != null) {
+                hot.setItems(getOrderItems(orderNo));
+            }
+            return hot;
+        });
+        return order != null ? order : loadArchivedOrder(orderNo);
+    }
+
+    /**
+     * 从归档表加载订单详情：带槽位的订单号直接定位分库，旧订单号逐库查找
+     */
+    private Order loadArchivedOrder(String orderNo) {
+        int shard = orderShardRouter.shardOfOrderNo(orderNo);
+        int from = shard >= 0 ? shard : 0;
+        int to = shard >= 0 ? shard : orderShardRouter.getShardCount() - 1;
+        for (int i = from; i <= to; i++) {
+            Order order = orderShardRouter.execute(i, () -> {
+                Order archived = orderArchiveMapper.selectByOrderNo(orderNo);
+                if (archived != null) {
+                    archived.setItems(orderArchiveMapper.selectItems(orderNo));
+                }
+                return archived;
+            });
+            if (order != null) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 订单创建或状态变更后更新订单缓存和用户订单列表，并发布订单变更事件（当前有事务时在提交后执行）
+     */
+    private void publishChanges(List<Order> orders) {
+        orderCache.putAll(orders);
+        orderHistoryProjection.apply(orders);
+        applicationEventPublisher.publishEvent(new OrderChangedEvent(orders));
+    }
+
+    /**
+     * 订单占用的库存行：多明细订单按明细，单商品订单按订单头（订单需已加载明细）
+     */
+    private List<StockLineDTO> buildStockLines(Order order) {
+        List<OrderItem> items = order.getItems();
+        if (items.isEmpty()) {
+            return Collections.singletonList(new StockLineDTO(order.getProductId(), order.getQuantity()));
+        }
+        List<StockLineDTO> lines = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            lines.add(new StockLineDTO(item.getProductId(), item.getQuantity()));
+        }
+        return lines;
+    }
+
+    /**
+     * 订单未落库时归还已预占的库存：优先登记到发件箱，发件箱也写不进去时直接调用商品服务
+     */
+    private void compensateStock(String orderNo, List<StockLineDTO> lines) {
+        try {
+            orderOutboxWriter.saveStockRelease(orderNo, lines);
+        } catch (Exception e) {
+            log.error("登记库存归还失败，直接归还：{}", orderNo, e);
+            try {
+                productFeignClient.releaseStockBatch(lines, "order:" + orderNo);
+            } catch (Exception releaseException) {
+                log.error("归还库存失败，需人工处理：orderNo={}, lines={}", orderNo, lines, releaseException);
+            }
+        }
+    }
+
+    private List<OrderItem> getOrderItems(String orderNo) {
+        LambdaQueryWrapper<OrderItem> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(OrderItem::getOrderNo, orderNo);
+        return orderItemMapper.selectList(wrapper);
+    }
+
+    /**
+     * 批量查询订单明细（按订单号分组，单商品订单没有明细）
+     */
+    private Map<String, List<OrderItem>> getOrderItems(Collection<String> orderNos) {
+        Map<String, List<OrderItem>> itemsByOrder = new HashMap<>();
+        LambdaQueryWrapper<OrderItem> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(OrderItem::getOrderNo, orderNos);
+        for (OrderItem item : orderItemMapper.selectList(wrapper)) {
+            itemsByOrder.computeIfAbsent(item.getOrderNo(), k -> new ArrayList<>()).add(item);
+        }
+        return itemsByOrder;
+    }
+
+    /**
+     * 解析商品服务返回结果，失败时抛出对应业务异常
+     */
+    private <T> T unwrap(Result<T> result, ResultCode emptyCode) {
+        if (result == null) {
+            throw new BusinessException(emptyCode);
+        }
+        if (!ResultCode.SUCCESS.getCode().equals(result.getCode())) {
+            throw new BusinessException(result.getCode(), result.getMessage());
+        }
+        if (result.getData() == null) {
+            throw new BusinessException(emptyCode);
+        }
+        return result.getData();
     }
 
     /**
-     * 生成订单号
+     * 订单落库：订单与发件箱事件同一事务提交，开启组提交时由写入器合并提交，否则单条插入；
+     * 提交后更新缓存和用户订单列表，落库失败时归还已预占的库存
      */
-    private String generateOrderNo() {
-        return IdUtil.getSnowflakeNextIdStr();
+    private void persistOrder(Order order, List<OrderOutbox> events, List<StockLineDTO> stockLines) {
+        if (!batchWriterEnabled) {
+            try {
+                orderShardRouter.run(orderShardRouter.shardOfOrderNo(order.getOrderNo()), () ->
+                        transactionTemplate.executeWithoutResult(status -> {
+                            orderMapper.registerOrderNos(Collections.singletonList(order));
+                            if (orderMapper.insert(order) <= 0) {
+                                throw new BusinessException("创建订单失败");
+                            }
+                            orderOutboxWriter.save(events);
+                        }));
+            } catch (RuntimeException e) {
+                compensateStock(order.getOrderNo(), stockLines);
+                throw e;
+            }
+            publishChanges(Collections.singletonList(order));
+            return;
+        }
+
+        // 以组提交的最终结果为准：等待超时后订单仍可能提交成功，提交后的更新在回调中执行而不依赖调用方
+        CompletableFuture<Order> future = orderBatchWriter.submit(order, events);
+        future.whenComplete((persisted, e) -> {
+            if (e != null) {
+                compensateStock(order.getOrderNo(), stockLines);
+                return;
+            }
+            try {
+                publishChanges(Collections.singletonList(order));
+            } catch (Exception publishException) {
+                log.error("订单已提交，更新缓存和用户订单列表失败：{}", order.getOrderNo(), publishException);
+            }
+        });
+        try {
+            future.get(batchWriterWaitTimeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            log.error("订单组提交失败：{}", order.getOrderNo(), e.getCause());
+            throw new BusinessException("创建订单失败");
+        } catch (TimeoutException e) {
+            throw new BusinessException("创建订单超时，请稍后查询订单");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("创建订单失败");
+        }
     }
 }
@@ -0,0 +1,197 @@
+package com.ecommerce.order.sharding;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderItem;
+import com.ecommerce.order.mapper.OrderItemMapper;
+import com.ecommerce.order.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单分库迁移
+ *
+ * 按主键顺序分批读取旧库订单（含明细），按用户ID写入所在分库；目标库已存在的订单号跳过，
+ * 进度（旧库主键）记录在Redis，中断后从断点继续，可重复执行。已逻辑删除的订单不迁移
+ */
+@Slf4j
+@Component
+public class OrderShardMigrator {
+
+    private static final BeanPropertyRowMapper<Order> ORDER_ROW_MAPPER = new BeanPropertyRowMapper<>(Order.class);
+
+    private static final BeanPropertyRowMapper<OrderItem> ITEM_ROW_MAPPER = new BeanPropertyRowMapper<>(OrderItem.class);
+
+    @Autowired
+    private OrderShardingProperties properties;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-shard-migrator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong migrated = new AtomicLong();
+
+    private volatile boolean running;
+
+    private volatile long lastId;
+
+    private volatile String lastError;
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+    }
+
+    /**
+     * 启动迁移（后台执行）
+     * @return 已在执行时返回false
+     */
+    public synchronized boolean start() {
+        if (properties.getLegacy() == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "未配置迁移源库 order.sharding.legacy");
+        }
+        if (running) {
+            return false;
+        }
+        running = true;
+        lastError = null;
+        migrated.set(0);
+        executor.submit(this::migrate);
+        return true;
+    }
+
+    /**
+     * 迁移进度
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", running);
+        progress.put("lastId", lastId);
+        progress.put("migrated", migrated.get());
+        progress.put("error", lastError);
+        return progress;
+    }
+
+    private void migrate() {
+        DruidDataSource legacyDataSource = OrderShardingConfig.createDataSource(properties.getLegacy(), 2);
+        try {
+            NamedParameterJdbcTemplate legacy = new NamedParameterJdbcTemplate(legacyDataSource);
+            Object checkpoint = redisTemplate.opsForValue().get(RedisKeyConstant.ORDER_SHARD_MIGRATE_CHECKPOINT);
+            lastId = checkpoint == null ? 0 : ((Number) checkpoint).longValue();
+            log.info("订单分库迁移开始：从主键{}之后，分库数{}", lastId, orderShardRouter.getShardCount());
+
+            while (running) {
+                MapSqlParameterSource params = new MapSqlParameterSource()
+                        .addValue("lastId", lastId)
+                        .addValue("limit", properties.getMigrateBatchSize());
+                List<Order> orders = legacy.query("SELECT * FROM tb_order WHERE deleted = 0 AND id > :lastId " +
+                        "ORDER BY id LIMIT :limit", params, ORDER_ROW_MAPPER);
+                if (orders.isEmpty()) {
+                    break;
+                }
+
+                Map<String, List<OrderItem>> itemsByOrder = loadItems(legacy, orders);
+                Map<Integer, List<Order>> ordersByShard =
+                        orderShardRouter.groupByShard(orders, order -> orderShardRouter.shardOfUser(order.getUserId()));
+                for (Map.Entry<Integer, List<Order>> entry : ordersByShard.entrySet()) {
+                    Integer copied = orderShardRouter.execute(entry.getKey(), () -> transactionTemplate.execute(
+                            status -> copyOrders(entry.getValue(), itemsByOrder)));
+                    migrated.addAndGet(copied == null ? 0 : copied);
+                }
+
+                lastId = orders.get(orders.size() - 1).getId();
+                redisTemplate.opsForValue().set(RedisKeyConstant.ORDER_SHARD_MIGRATE_CHECKPOINT, lastId);
+            }
+            log.info("订单分库迁移结束：迁移{}条，最后主键{}", migrated.get(), lastId);
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("订单分库迁移失败：最后主键{}", lastId, e);
+        } finally {
+            legacyDataSource.close();
+            running = false;
+        }
+    }
+
+    private Map<String, List<OrderItem>> loadItems(NamedParameterJdbcTemplate legacy, List<Order> orders) {
+        List<String> orderNos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderNos.add(order.getOrderNo());
+        }
+        Map<String, List<OrderItem>> itemsByOrder = new HashMap<>();
+        List<OrderItem> items = legacy.query("SELECT * FROM tb_order_item WHERE order_no IN (:orderNos)",
+                new MapSqlParameterSource("orderNos", orderNos), ITEM_ROW_MAPPER);
+        for (OrderItem item : items) {
+            itemsByOrder.computeIfAbsent(item.getOrderNo(), k -> new ArrayList<>()).add(item);
+        }
+        return itemsByOrder;
+    }
+
+    /**
+     * 写入同一分库的订单及明细（在该分库的事务中执行）
+     */
+    private int copyOrders(List<Order> orders, Map<String, List<OrderItem>> itemsByOrder) {
+        List<String> orderNos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderNos.add(order.getOrderNo());
+        }
+        Set<String> existing = new HashSet<>(orderMapper.selectExistingOrderNos(orderNos));
+
+        List<Order> fresh = new ArrayList<>(orders.size());
+        List<OrderItem> items = new ArrayList<>();
+        for (Order order : orders) {
+            if (existing.contains(order.getOrderNo())) {
+                continue;
+            }
+            fresh.add(order);
+            items.addAll(itemsByOrder.getOrDefault(order.getOrderNo(), new ArrayList<>()));
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        orderMapper.registerOrderNos(fresh);
+        orderMapper.insertMigratedBatch(fresh);
+        if (!items.isEmpty()) {
+            orderItemMapper.insertMigratedBatch(items);
+        }
+        return fresh.size();
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecommerce.order.sharding;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.mapper.OrderMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 订单分库路由
+ *
+ * 用户ID取模得到逻辑槽位（固定1024个），槽位再对分库数取模得到分库；订单号 = 雪花ID + 4位槽位，
+ * 按订单号可直接定位分库，同一用户的订单都在同一分库。分库前生成的订单号（不带槽位）需逐库查找
+ */
+@Component
+public class OrderShardRouter {
+
+    /**
+     * 逻辑槽位数（写入订单号，不随分库数变化）
+     */
+    public static final int SLOT_COUNT = 1024;
+
+    /**
+     * 不带槽位的订单号最大长度（雪花ID）
+     */
+    private static final int LEGACY_ORDER_NO_LENGTH = 19;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    @Autowired
+    private OrderShardingProperties properties;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 当前线程绑定的分库序号（未绑定时为0）
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * 分库数
+     */
+    public int getShardCount() {
+        return properties.isEnabled() ? properties.getDatabases().size() : 1;
+    }
+
+    /**
+     * 用户所在分库
+     */
+    public int shardOfUser(Long userId) {
+        return shardOfSlot(Math.floorMod(userId, SLOT_COUNT));
+    }
+
+    /**
+     * 按订单号定位分库，分库前生成的订单号返回-1
+     */
+    public int shardOfOrderNo(String orderNo) {
+        if (orderNo == null || orderNo.length() <= LEGACY_ORDER_NO_LENGTH) {
+            return -1;
+        }
+        int slot = Integer.parseInt(orderNo.substring(orderNo.length() - 4));
+        return shardOfSlot(slot);
+    }
+
+    /**
+     * 生成带槽位的订单号
+     */
+    public String generateOrderNo(Long userId) {
+        return IdUtil.getSnowflakeNextIdStr() + String.format("%04d", Math.floorMod(userId, SLOT_COUNT));
+    }
+
+    /**
+     * 定位订单所在分库：带槽位的订单号直接计算，旧订单号逐库查找（找不到时返回0）
+     */
+    public int locateOrder(String orderNo) {
+        int shard = shardOfOrderNo(orderNo);
+        if (shard >= 0) {
+            return shard;
+        }
+        int shardCount = getShardCount();
+        for (int i = 0; i < shardCount && shardCount > 1; i++) {
+            Long count = execute(i, () -> {
+                LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(Order::getOrderNo, orderNo);
+                return orderMapper.selectCount(wrapper);
+            });
+            if (count != null && count > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 按分库分组（保持原有顺序）
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, Integer> shardFunction) {
+        Map<Integer, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardFunction.apply(item), k -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * 在指定分库上执行（事务需在回调内开启）
+     */
+    public <T> T execute(int shard, Supplier<T> action) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在指定分库上执行（事务需在回调内开启）
+     */
+    public void run(int shard, Runnable action) {
+        execute(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private int shardOfSlot(int slot) {
+        return slot % getShardCount();
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.order.sharding;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.ecommerce.order.sharding.OrderShardingProperties.ShardDatabase;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 订单分库数据源配置：每个分库一个Druid连接池，由路由数据源按分库序号选择
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.sharding.enabled", havingValue = "true")
+public class OrderShardingConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(OrderShardingProperties properties) {
+        if (properties.getDatabases().isEmpty()) {
+            throw new IllegalStateException("已开启订单分库，但未配置 order.sharding.databases");
+        }
+        Map<Object, Object> shards = new HashMap<>();
+        for (int shard = 0; shard < properties.getDatabases().size(); shard++) {
+            shards.put(shard, createDataSource(properties.getDatabases().get(shard), properties.getMaxActive()));
+        }
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(shards);
+        routingDataSource.setDefaultTargetDataSource(shards.get(0));
+        routingDataSource.setLenientFallback(false);
+        return routingDataSource;
+    }
+
+    /**
+     * 创建连接池
+     */
+    static DruidDataSource createDataSource(ShardDatabase database, int maxActive) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setUrl(database.getUrl());
+        dataSource.setUsername(database.getUsername());
+        dataSource.setPassword(database.getPassword());
+        dataSource.setInitialSize(Math.min(5, maxActive));
+        dataSource.setMinIdle(Math.min(5, maxActive));
+        dataSource.setMaxActive(maxActive);
+        return dataSource;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.order.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单分库配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.sharding")
+public class OrderShardingProperties {
+
+    /**
+     * 是否开启分库（关闭时只使用 spring.datasource 一个库）
+     */
+    private boolean enabled;
+
+    /**
+     * 各分库连接池最大连接数
+     */
+    private int maxActive = 20;
+
+    /**
+     * 分库列表，下标即分库序号
+     */
+    private List<ShardDatabase> databases = new ArrayList<>();
+
+    /**
+     * 迁移源库（分库前的单库），迁移完成后可移除
+     */
+    private ShardDatabase legacy;
+
+    /**
+     * 迁移每批订单数
+     */
+    private int migrateBatchSize = 500;
+
+    /**
+     * 数据库连接
+     */
+    @Data
+    public static class ShardDatabase {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
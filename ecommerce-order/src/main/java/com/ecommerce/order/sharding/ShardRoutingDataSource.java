@@ -0,0 +1,16 @@
+package com.ecommerce.order.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * 按当前线程绑定的分库序号路由的数据源
+ *
+ * 事务开启时按当时的分库序号取连接并绑定到事务，因此分库序号必须在事务开启前设置
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return OrderShardRouter.currentShard();
+    }
+}
@@ -0,0 +1,426 @@
+package com.ecommerce.order.stats;
+
+import cn.hutool.core.util.IdUtil;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderItem;
+import com.ecommerce.order.event.OrderChangedEvent;
+import com.ecommerce.order.vo.SalesCounterVO;
+import com.ecommerce.order.vo.SalesStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 实时销售统计
+ *
+ * 监听订单创建/支付/取消事件（事务提交后），按分钟累加订单数、件数、金额（全部商品及按商品）：
+ * 计数使用LongAdder分段累加，分钟桶放在环形数组中，跨分钟时以CAS替换整个桶，写入无锁。
+ * 各实例定时把最近两分钟的桶写入Redis（order:stats:sales:{分钟} 哈希，实例ID -> 快照），
+ * 查询时合并其他实例的快照与本实例的实时数据，不访问数据库
+ */
+@Slf4j
+@Component
+public class SalesAggregator {
+
+    /**
+     * 事件类型：下单、支付、取消
+     */
+    public static final int CREATED = 0;
+    public static final int PAID = 1;
+    public static final int CANCELLED = 2;
+
+    /**
+     * 每种事件的指标：订单数、件数、金额（分）
+     */
+    public static final int ORDERS = 0;
+    public static final int UNITS = 1;
+    public static final int AMOUNT = 2;
+
+    /**
+     * 计数数组长度（下标 = 事件类型 * 3 + 指标）
+     */
+    public static final int METRIC_COUNT = 9;
+
+    /**
+     * 最大统计窗口（分钟）
+     */
+    public static final int MAX_WINDOW_MINUTES = 60;
+
+    /**
+     * 环形数组长度（最大窗口 + 快照补写的上一分钟，留有余量）
+     */
+    private static final int RING_SIZE = 64;
+
+    /**
+     * 热销排序：支付金额优先，其次下单金额（倒序）
+     */
+    private static final Comparator<Map.Entry<Long, long[]>> HOT_FIRST = Comparator
+            .comparingLong((Map.Entry<Long, long[]> e) -> e.getValue()[PAID * 3 + AMOUNT])
+            .thenComparingLong(e -> e.getValue()[CREATED * 3 + AMOUNT])
+            .reversed();
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 快照写入Redis的间隔（毫秒）
+     */
+    @Value("${order.stats.snapshot-interval:5000}")
+    private long snapshotInterval;
+
+    /**
+     * 每个快照保留的商品数（按支付金额）
+     */
+    @Value("${order.stats.snapshot-products:500}")
+    private int snapshotProducts;
+
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    private final AtomicReferenceArray<MinuteBucket> ring = new AtomicReferenceArray<>(RING_SIZE);
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-sales-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::snapshot, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+        log.info("实时销售统计启动：instance={}, snapshotInterval={}ms", instanceId, snapshotInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        // 停止前写入最后一次快照，本实例的数据在保留期内仍参与合并
+        snapshot();
+    }
+
+    /**
+     * 订单变更（事务提交后；无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        MinuteBucket bucket = bucketOf(currentMinute());
+        for (Order order : event.getOrders()) {
+            int type = typeOf(order.getStatus());
+            if (type < 0) {
+                continue;
+            }
+            bucket.total.add(type, nvl(order.getQuantity()), toCents(order.getTotalAmount()));
+            List<OrderItem> items = order.getItems();
+            if (items == null || items.isEmpty()) {
+                bucket.product(order.getProductId())
+                        .add(type, nvl(order.getQuantity()), toCents(order.getTotalAmount()));
+                continue;
+            }
+            for (OrderItem item : items) {
+                bucket.product(item.getProductId())
+                        .add(type, nvl(item.getQuantity()), toCents(item.getTotalAmount()));
+            }
+        }
+    }
+
+    /**
+     * 查询最近窗口的销售统计（合并所有实例）
+     * @param window 窗口：1m、5m、1h 等，最长1小时
+     * @param top 返回的热销商品数
+     */
+    @SuppressWarnings("unchecked")
+    public SalesStatsVO getStats(String window, int top) {
+        int windowMinutes = parseWindow(window);
+        long current = currentMinute();
+        long from = current - windowMinutes + 1;
+
+        Map<Long, long[]> minuteTotals = new LinkedHashMap<>();
+        for (long minute = from; minute <= current; minute++) {
+            minuteTotals.put(minute, new long[METRIC_COUNT]);
+        }
+        Map<Long, long[]> productTotals = new HashMap<>();
+        Set<Object> instances = new HashSet<>();
+        instances.add(instanceId);
+
+        // 其他实例的快照（Redis不可用时只返回本实例数据）
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (long minute = from; minute <= current; minute++) {
+                        ops.opsForHash().entries(RedisKeyConstant.buildSalesStatsKey(minute));
+                    }
+                    return null;
+                }
+            });
+            for (Object result : results) {
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) result).entrySet()) {
+                    if (!instanceId.equals(entry.getKey())) {
+                        instances.add(entry.getKey());
+                        merge((SalesSnapshot) entry.getValue(), minuteTotals, productTotals);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取销售统计快照失败，只返回本实例数据：{}", e.getMessage());
+        }
+
+        // 本实例的实时数据
+        for (long minute = from; minute <= current; minute++) {
+            MinuteBucket bucket = ring.get(indexOf(minute));
+            if (bucket != null && bucket.minute == minute) {
+                merge(bucket.toSnapshot(Integer.MAX_VALUE), minuteTotals, productTotals);
+            }
+        }
+
+        long[] total = new long[METRIC_COUNT];
+        List<SalesCounterVO> minutes = new ArrayList<>(windowMinutes);
+        for (Map.Entry<Long, long[]> entry : minuteTotals.entrySet()) {
+            add(total, entry.getValue());
+            SalesCounterVO minuteVO = toVO(entry.getValue());
+            minuteVO.setMinute(LocalDateTime.ofInstant(
+                    Instant.ofEpochSecond(TimeUnit.MINUTES.toSeconds(entry.getKey())), ZoneId.systemDefault()));
+            minutes.add(minuteVO);
+        }
+        List<SalesCounterVO> topProducts = new ArrayList<>();
+        productTotals.entrySet().stream()
+                .sorted(HOT_FIRST)
+                .limit(Math.min(Math.max(top, 0), 100))
+                .forEach(e -> {
+                    SalesCounterVO productVO = toVO(e.getValue());
+                    productVO.setProductId(e.getKey());
+                    topProducts.add(productVO);
+                });
+
+        SalesStatsVO stats = new SalesStatsVO();
+        stats.setWindowMinutes(windowMinutes);
+        stats.setInstances(instances.size());
+        stats.setTotal(toVO(total));
+        stats.setMinutes(minutes);
+        stats.setTopProducts(topProducts);
+        return stats;
+    }
+
+    /**
+     * 写入本实例当前分钟和上一分钟的快照（上一分钟可能在跨分钟时还有写入）
+     */
+    private void snapshot() {
+        long current = currentMinute();
+        List<SalesSnapshot> snapshots = new ArrayList<>(2);
+        for (long minute = current - 1; minute <= current; minute++) {
+            MinuteBucket bucket = ring.get(indexOf(minute));
+            if (bucket != null && bucket.minute == minute) {
+                snapshots.add(bucket.toSnapshot(snapshotProducts));
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (SalesSnapshot snapshot : snapshots) {
+                        String key = RedisKeyConstant.buildSalesStatsKey(snapshot.getMinute());
+                        ops.opsForHash().put(key, instanceId, snapshot);
+                        ops.expire(key, MAX_WINDOW_MINUTES + 5, TimeUnit.MINUTES);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("写入销售统计快照失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取当前分钟的桶，桶属于更早的分钟时以新桶替换
+     */
+    private MinuteBucket bucketOf(long minute) {
+        int index = indexOf(minute);
+        while (true) {
+            MinuteBucket bucket = ring.get(index);
+            if (bucket != null && bucket.minute >= minute) {
+                return bucket;
+            }
+            MinuteBucket fresh = new MinuteBucket(minute);
+            if (ring.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private void merge(SalesSnapshot snapshot, Map<Long, long[]> minuteTotals, Map<Long, long[]> productTotals) {
+        long[] minuteTotal = minuteTotals.get(snapshot.getMinute());
+        if (minuteTotal == null) {
+            return;
+        }
+        add(minuteTotal, snapshot.getTotal());
+        snapshot.getProducts().forEach((productId, counters) ->
+                add(productTotals.computeIfAbsent(productId, k -> new long[METRIC_COUNT]), counters));
+    }
+
+    private static void add(long[] target, long[] counters) {
+        for (int i = 0; i < METRIC_COUNT && i < counters.length; i++) {
+            target[i] += counters[i];
+        }
+    }
+
+    private static SalesCounterVO toVO(long[] counters) {
+        SalesCounterVO vo = new SalesCounterVO();
+        vo.setCreatedOrders(counters[CREATED * 3 + ORDERS]);
+        vo.setCreatedUnits(counters[CREATED * 3 + UNITS]);
+        vo.setCreatedAmount(BigDecimal.valueOf(counters[CREATED * 3 + AMOUNT], 2));
+        vo.setPaidOrders(counters[PAID * 3 + ORDERS]);
+        vo.setPaidUnits(counters[PAID * 3 + UNITS]);
+        vo.setPaidAmount(BigDecimal.valueOf(counters[PAID * 3 + AMOUNT], 2));
+        vo.setCancelledOrders(counters[CANCELLED * 3 + ORDERS]);
+        vo.setCancelledUnits(counters[CANCELLED * 3 + UNITS]);
+        vo.setCancelledAmount(BigDecimal.valueOf(counters[CANCELLED * 3 + AMOUNT], 2));
+        return vo;
+    }
+
+    /**
+     * 订单状态对应的事件类型：0-下单 1-支付 2-取消，其他状态不统计
+     */
+    private static int typeOf(Integer status) {
+        if (status == null || status > CANCELLED) {
+            return -1;
+        }
+        return status;
+    }
+
+    private static int parseWindow(String window) {
+        int minutes;
+        try {
+            String value = window == null ? "" : window.trim().toLowerCase();
+            if (value.endsWith("h")) {
+                minutes = Integer.parseInt(value.substring(0, value.length() - 1)) * 60;
+            } else if (value.endsWith("m")) {
+                minutes = Integer.parseInt(value.substring(0, value.length() - 1));
+            } else {
+                minutes = Integer.parseInt(value);
+            }
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "统计窗口格式错误，例如 1m、5m、1h");
+        }
+        if (minutes < 1 || minutes > MAX_WINDOW_MINUTES) {
+            throw new BusinessException(ResultCode.PARAM_ERROR.getCode(), "统计窗口需在1分钟~1小时之间");
+        }
+        return minutes;
+    }
+
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+
+    private static int indexOf(long minute) {
+        return (int) (minute % RING_SIZE);
+    }
+
+    private static long nvl(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * 分段计数（每个指标一个LongAdder）
+     */
+    private static final class Counters {
+
+        private final LongAdder[] adders = new LongAdder[METRIC_COUNT];
+
+        private Counters() {
+            for (int i = 0; i < METRIC_COUNT; i++) {
+                adders[i] = new LongAdder();
+            }
+        }
+
+        private void add(int type, long units, long amount) {
+            adders[type * 3 + ORDERS].increment();
+            adders[type * 3 + UNITS].add(units);
+            adders[type * 3 + AMOUNT].add(amount);
+        }
+
+        private long[] sum() {
+            long[] counters = new long[METRIC_COUNT];
+            for (int i = 0; i < METRIC_COUNT; i++) {
+                counters[i] = adders[i].sum();
+            }
+            return counters;
+        }
+    }
+
+    /**
+     * 一分钟的计数桶
+     */
+    private static final class MinuteBucket {
+
+        private final long minute;
+
+        private final Counters total = new Counters();
+
+        private final ConcurrentHashMap<Long, Counters> products = new ConcurrentHashMap<>();
+
+        private MinuteBucket(long minute) {
+            this.minute = minute;
+        }
+
+        private Counters product(Long productId) {
+            return products.computeIfAbsent(productId, k -> new Counters());
+        }
+
+        /**
+         * 生成快照，只保留排序靠前的商品
+         */
+        private SalesSnapshot toSnapshot(int maxProducts) {
+            SalesSnapshot snapshot = new SalesSnapshot();
+            snapshot.setMinute(minute);
+            snapshot.setTotal(total.sum());
+            Map<Long, long[]> sums = new HashMap<>();
+            products.forEach((productId, counters) -> sums.put(productId, counters.sum()));
+            sums.entrySet().stream()
+                    .sorted(HOT_FIRST)
+                    .limit(maxProducts)
+                    .forEach(e -> snapshot.getProducts().put(e.getKey(), e.getValue()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.order.stats;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单个实例一分钟的销售统计快照（写入Redis供多实例合并）
+ *
+ * 计数数组下标见 {@link SalesAggregator} 的指标常量，金额单位为分
+ */
+@Data
+public class SalesSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 分钟（epoch分钟数）
+     */
+    private long minute;
+
+    /**
+     * 全部商品汇总
+     */
+    private long[] total;
+
+    /**
+     * 按商品统计（只保留销售额最高的部分商品）
+     */
+    private Map<Long, long[]> products = new HashMap<>();
+}
@@ -0,0 +1,134 @@
+package com.ecommerce.order.timeout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮
+ *
+ * 第L层每格跨度为 wheelSize^L 个tick；到期时间较远的任务放在高层，随时间推进逐层下沉，
+ * 添加与取消均为O(1)。非线程安全，由调用方加锁。
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    /**
+     * buckets[层][格]：任务ID -> 到期tick
+     */
+    private final List<List<Map<String, Long>>> buckets;
+
+    /**
+     * 任务所在的格，用于O(1)取消
+     */
+    private final Map<String, Map<String, Long>> index = new HashMap<>();
+
+    /**
+     * 各层每格跨度（tick数）
+     */
+    private final long[] spans;
+
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = startMillis / tickMillis;
+        this.spans = new long[levels];
+        this.buckets = new ArrayList<>(levels);
+        long span = 1;
+        for (int level = 0; level < levels; level++) {
+            spans[level] = span;
+            List<Map<String, Long>> slots = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                slots.add(new LinkedHashMap<>());
+            }
+            buckets.add(slots);
+            span *= wheelSize;
+        }
+    }
+
+    /**
+     * 添加任务（已存在则按新的到期时间重新放置）
+     * @return 已到期返回false，由调用方立即处理
+     */
+    public boolean add(String id, long deadlineMillis) {
+        remove(id);
+        long deadlineTick = deadlineMillis / tickMillis;
+        if (deadlineTick <= currentTick) {
+            return false;
+        }
+        place(id, deadlineTick);
+        return true;
+    }
+
+    /**
+     * 取消任务
+     */
+    public boolean remove(String id) {
+        Map<String, Long> bucket = index.remove(id);
+        return bucket != null && bucket.remove(id) != null;
+    }
+
+    /**
+     * 推进到指定时间，返回期间到期的任务
+     */
+    public List<String> advance(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // 高层到达格边界时，整格任务下沉到低层
+            for (int level = spans.length - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    cascade(level, expired);
+                }
+            }
+            Map<String, Long> bucket = takeBucket(0, currentTick);
+            for (String id : bucket.keySet()) {
+                index.remove(id);
+                expired.add(id);
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private void cascade(int level, List<String> expired) {
+        Map<String, Long> bucket = takeBucket(level, currentTick / spans[level]);
+        for (Map.Entry<String, Long> entry : bucket.entrySet()) {
+            index.remove(entry.getKey());
+            if (entry.getValue() <= currentTick) {
+                expired.add(entry.getKey());
+            } else {
+                place(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private Map<String, Long> takeBucket(int level, long slotTick) {
+        List<Map<String, Long>> slots = buckets.get(level);
+        int slot = (int) (slotTick % wheelSize);
+        Map<String, Long> bucket = slots.get(slot);
+        slots.set(slot, new LinkedHashMap<>());
+        return bucket;
+    }
+
+    private void place(String id, long deadlineTick) {
+        int level = 0;
+        while (level < spans.length - 1 && deadlineTick / spans[level] - currentTick / spans[level] >= wheelSize) {
+            level++;
+        }
+        Map<String, Long> bucket = buckets.get(level).get((int) (deadlineTick / spans[level] % wheelSize));
+        bucket.put(id, deadlineTick);
+        index.put(id, bucket);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.order.timeout;
+
+import com.ecommerce.order.mq.OrderMessageProducer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于消息TTL + 死信队列的超时调度
+ *
+ * 队列只在队头过期消息，延迟需统一；已发送的消息无法撤销，由消费者按订单状态判断
+ */
+@Component
+@ConditionalOnProperty(name = "order.timeout.mode", havingValue = "mq", matchIfMissing = true)
+public class MqOrderTimeoutScheduler implements OrderTimeoutScheduler {
+
+    @Autowired
+    private OrderMessageProducer orderMessageProducer;
+
+    @Override
+    public void schedule(String orderNo, long delayMillis) {
+        orderMessageProducer.sendOrderTimeoutMessage(orderNo, delayMillis);
+    }
+
+    @Override
+    public void cancel(String orderNo) {
+        // 消息无法撤销，消费者会跳过非待支付订单
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.order.timeout;
+
+/**
+ * 订单支付超时调度
+ *
+ * 实现：mq-消息TTL+死信队列（默认） wheel-Redis有序集合持久化的分层时间轮
+ * 到期的订单号统一投递到订单超时死信队列，由消费者取消
+ */
+public interface OrderTimeoutScheduler {
+
+    /**
+     * 登记订单超时
+     * @param orderNo 订单号
+     * @param delayMillis 延迟时间（毫秒）
+     */
+    void schedule(String orderNo, long delayMillis);
+
+    /**
+     * 撤销订单超时（订单已支付或已取消）
+     */
+    void cancel(String orderNo);
+}
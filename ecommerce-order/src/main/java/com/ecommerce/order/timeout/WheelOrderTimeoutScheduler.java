@@ -0,0 +1,327 @@
+package com.ecommerce.order.timeout;
+
+import cn.hutool.core.util.IdUtil;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.order.mq.OrderMessageProducer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层时间轮超时调度
+ *
+ * 订单按订单号哈希分片，持久化在Redis有序集合 order:timeout:{分片}（score为到期时间）中。
+ * 每个分片由一个实例持有租约锁轮询，各实例持有的分片数按在线实例数均分；持有者把即将到期的订单
+ * 预加载到本地分层时间轮，到期后直接投递到订单超时死信队列并从有序集合删除。
+ * 每个tick投递数量有上限，集中到期的订单在后续tick中平滑投递；其他实例登记的、已落入预加载范围的订单，
+ * 以及取得分片时已逾期的积压订单（故障恢复后可能很多），由每个tick的分页逾期扫描补投。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.timeout.mode", havingValue = "wheel")
+public class WheelOrderTimeoutScheduler implements OrderTimeoutScheduler {
+
+    /**
+     * 续期分片租约（仅持有者可续期）
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('expire', KEYS[1], tonumber(ARGV[2])) " +
+            "else " +
+            "    return 0 " +
+            "end",
+            Long.class);
+
+    /**
+     * 释放分片租约
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "else " +
+            "    return 0 " +
+            "end",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private OrderMessageProducer orderMessageProducer;
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    /**
+     * 分片数
+     */
+    @Value("${order.timeout.wheel.shards:16}")
+    private int shards;
+
+    /**
+     * 时间轮tick（毫秒）
+     */
+    @Value("${order.timeout.wheel.tick-millis:1000}")
+    private long tickMillis;
+
+    /**
+     * 预加载到本地时间轮的时间范围（毫秒）
+     */
+    @Value("${order.timeout.wheel.load-ahead-millis:60000}")
+    private long loadAheadMillis;
+
+    /**
+     * 每个tick最多投递的到期订单数
+     */
+    @Value("${order.timeout.wheel.max-expire-per-tick:500}")
+    private int maxExpirePerTick;
+
+    /**
+     * 分片租约时长（秒）
+     */
+    @Value("${order.timeout.wheel.lease-seconds:10}")
+    private long leaseSeconds;
+
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    private final Map<Integer, ShardState> ownedShards = new ConcurrentHashMap<>();
+
+    /**
+     * 已到期待投递的订单（平滑集中到期）
+     */
+    private final Set<String> backlog = new LinkedHashSet<>();
+
+    private ScheduledExecutorService executor;
+
+    private long tickCount;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        log.info("订单超时时间轮启动：instance={}, shards={}, tick={}ms", instanceId, shards, tickMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        ownedShards.forEach((shard, state) -> redisTemplate.execute(RELEASE_SCRIPT,
+                Collections.singletonList(buildLockKey(shard)), state.lockValue));
+        ownedShards.clear();
+    }
+
+    @Override
+    public void schedule(String orderNo, long delayMillis) {
+        long deadline = System.currentTimeMillis() + delayMillis;
+        int shard = shardOf(orderNo);
+        redisTemplate.opsForZSet().add(buildShardKey(shard), orderNo, deadline);
+
+        // 本实例持有该分片且到期时间已在预加载范围内时，直接放入时间轮
+        ShardState state = ownedShards.get(shard);
+        if (state != null) {
+            synchronized (state) {
+                if (deadline <= state.loadedUntil && !state.wheel.add(orderNo, deadline)) {
+                    state.expired.add(orderNo);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cancel(String orderNo) {
+        int shard = shardOf(orderNo);
+        redisTemplate.opsForZSet().remove(buildShardKey(shard), orderNo);
+        ShardState state = ownedShards.get(shard);
+        if (state != null) {
+            synchronized (state) {
+                state.wheel.remove(orderNo);
+            }
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            // 每个租约周期重新分配一次分片
+            if (tickCount++ % Math.max(1, TimeUnit.SECONDS.toMillis(leaseSeconds) / tickMillis / 3) == 0) {
+                balanceShards(now);
+            }
+            for (Map.Entry<Integer, ShardState> entry : ownedShards.entrySet()) {
+                pollShard(entry.getKey(), entry.getValue(), now);
+            }
+            drainBacklog();
+        } catch (Exception e) {
+            log.error("订单超时时间轮执行异常：{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 续期已持有的分片，并按在线实例数领取空闲分片
+     */
+    private void balanceShards(long now) {
+        for (Integer shard : new ArrayList<>(ownedShards.keySet())) {
+            ShardState state = ownedShards.get(shard);
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(buildLockKey(shard)), state.lockValue, leaseSeconds);
+            if (renewed == null || renewed == 0) {
+                ownedShards.remove(shard);
+                log.info("失去订单超时分片：{}", shard);
+            }
+        }
+
+        int instances = Math.max(1, discoveryClient.getInstances(applicationName).size());
+        int quota = (shards + instances - 1) / instances;
+
+        // 新实例加入后让出多余分片
+        for (Integer shard : new ArrayList<>(ownedShards.keySet())) {
+            if (ownedShards.size() <= quota) {
+                break;
+            }
+            ShardState state = ownedShards.remove(shard);
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(buildLockKey(shard)), state.lockValue);
+            log.info("让出订单超时分片：{}", shard);
+        }
+        for (int shard = 0; shard < shards && ownedShards.size() < quota; shard++) {
+            if (ownedShards.containsKey(shard)) {
+                continue;
+            }
+            String lockValue = instanceId + ":" + shard;
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(buildLockKey(shard), lockValue, leaseSeconds, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                ownedShards.put(shard, new ShardState(lockValue,
+                        new HierarchicalTimingWheel(tickMillis, 60, 3, now)));
+                log.info("获得订单超时分片：{}", shard);
+            }
+        }
+    }
+
+    /**
+     * 预加载即将到期的订单并推进时间轮（刚取得分片时从一个tick前开始加载，更早逾期的订单留给分页逾期扫描，
+     * 不一次性全部读入）
+     */
+    private void pollShard(int shard, ShardState state, long now) {
+        long loadUntil = now + loadAheadMillis;
+        double min = state.loadedUntil == Long.MIN_VALUE ? now - tickMillis + 1 : state.loadedUntil + 1;
+        Set<TypedTuple<Object>> tuples = redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(buildShardKey(shard), min, loadUntil);
+
+        synchronized (state) {
+            if (tuples != null) {
+                for (TypedTuple<Object> tuple : tuples) {
+                    String orderNo = (String) tuple.getValue();
+                    if (!state.wheel.add(orderNo, tuple.getScore().longValue())) {
+                        state.expired.add(orderNo);
+                    }
+                }
+            }
+            state.loadedUntil = loadUntil;
+            state.expired.addAll(state.wheel.advance(now));
+            if (!state.expired.isEmpty()) {
+                backlog.addAll(state.expired);
+                state.expired.clear();
+            }
+        }
+
+        // 逾期扫描：补投未进入本地时间轮的订单（已在待投递中的自动去重）
+        Set<Object> overdue = redisTemplate.opsForZSet()
+                .rangeByScore(buildShardKey(shard), Double.NEGATIVE_INFINITY, now - tickMillis, 0, maxExpirePerTick);
+        if (overdue != null) {
+            for (Object orderNo : overdue) {
+                backlog.add((String) orderNo);
+            }
+        }
+    }
+
+    /**
+     * 投递到期订单（每个tick有上限），投递后从有序集合删除
+     */
+    private void drainBacklog() {
+        List<String> batch = new ArrayList<>(Math.min(backlog.size(), maxExpirePerTick));
+        Iterator<String> iterator = backlog.iterator();
+        while (iterator.hasNext() && batch.size() < maxExpirePerTick) {
+            String orderNo = iterator.next();
+            try {
+                orderMessageProducer.sendOrderExpiredMessage(orderNo);
+            } catch (Exception e) {
+                // 投递失败保留在待投递中，下个tick重试
+                log.warn("投递订单到期消息失败：{}", orderNo, e);
+                break;
+            }
+            iterator.remove();
+            batch.add(orderNo);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String orderNo : batch) {
+                    ops.opsForZSet().remove(buildShardKey(shardOf(orderNo)), orderNo);
+                }
+                return null;
+            }
+        });
+        log.info("订单超时到期投递：{}条，待投递{}条", batch.size(), backlog.size());
+    }
+
+    private int shardOf(String orderNo) {
+        return Math.floorMod(orderNo.hashCode(), shards);
+    }
+
+    private String buildShardKey(int shard) {
+        return RedisKeyConstant.ORDER_TIMEOUT_PREFIX + shard;
+    }
+
+    private String buildLockKey(int shard) {
+        return RedisKeyConstant.LOCK_ORDER_PREFIX + "timeout:" + shard;
+    }
+
+    /**
+     * 本实例持有的分片
+     */
+    private static class ShardState {
+        private final String lockValue;
+        private final HierarchicalTimingWheel wheel;
+        private final List<String> expired = new ArrayList<>();
+        private long loadedUntil = Long.MIN_VALUE;
+
+        ShardState(String lockValue, HierarchicalTimingWheel wheel) {
+            this.lockValue = lockValue;
+            this.wheel = wheel;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.order.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * 购物车商品VO
+ */
+@Data
+public class CartItemVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long productId;
+
+    private String productName;
+
+    private BigDecimal productPrice;
+
+    private String mainImage;
+
+    private Integer quantity;
+
+    /**
+     * 商品是否可购买（已上架且库存充足）
+     */
+    private Boolean available;
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.order.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页结果VO
+ */
+@Data
+public class CursorPageVO<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标（没有更多数据时为空）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean hasMore;
+
+    /**
+     * 总记录数（仅在请求时统计）
+     */
+    private Long total;
+}
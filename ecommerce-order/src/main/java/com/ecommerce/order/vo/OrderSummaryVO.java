@@ -0,0 +1,93 @@
+package com.ecommerce.order.vo;
+
+import com.ecommerce.order.entity.Order;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单摘要VO（用户订单列表读模型，只保存列表展示字段）
+ */
+@Data
+public class OrderSummaryVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 订单号
+     */
+    private String orderNo;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品名称
+     */
+    private String productName;
+
+    /**
+     * 商品单价
+     */
+    private BigDecimal productPrice;
+
+    /**
+     * 购买数量
+     */
+    private Integer quantity;
+
+    /**
+     * 订单总金额
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 订单状态：0-待支付 1-已支付 2-已取消 3-已完成 4-已关闭
+     */
+    private Integer status;
+
+    /**
+     * 支付时间
+     */
+    private LocalDateTime paymentTime;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    public static OrderSummaryVO of(Order order) {
+        OrderSummaryVO summary = new OrderSummaryVO();
+        summary.setOrderNo(order.getOrderNo());
+        summary.setProductId(order.getProductId());
+        summary.setProductName(order.getProductName());
+        summary.setProductPrice(order.getProductPrice());
+        summary.setQuantity(order.getQuantity());
+        summary.setTotalAmount(order.getTotalAmount());
+        summary.setStatus(order.getStatus());
+        summary.setPaymentTime(order.getPaymentTime());
+        summary.setCreateTime(order.getCreateTime());
+        return summary;
+    }
+
+    /**
+     * 转换为订单列表项（与数据库列表查询返回的字段一致）
+     */
+    public Order toOrder(Long userId) {
+        Order order = new Order();
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setProductId(productId);
+        order.setProductName(productName);
+        order.setProductPrice(productPrice);
+        order.setQuantity(quantity);
+        order.setTotalAmount(totalAmount);
+        order.setStatus(status);
+        order.setPaymentTime(paymentTime);
+        order.setCreateTime(createTime);
+        return order;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.order.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 排队下单凭证VO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTicketVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 排队状态：0-排队中 1-下单成功 2-下单失败
+     */
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_SUCCESS = 1;
+    public static final int STATUS_FAILED = 2;
+
+    /**
+     * 订单号
+     */
+    private String orderNo;
+
+    /**
+     * 排队状态：0-排队中 1-下单成功 2-下单失败
+     */
+    private Integer status;
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.order.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 销售统计VO（一分钟、一个商品或整个窗口的汇总）
+ */
+@Data
+public class SalesCounterVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 分钟起始时间（按分钟统计时）
+     */
+    private LocalDateTime minute;
+
+    /**
+     * 商品ID（按商品统计时）
+     */
+    private Long productId;
+
+    /**
+     * 下单数
+     */
+    private Long createdOrders;
+
+    /**
+     * 下单件数
+     */
+    private Long createdUnits;
+
+    /**
+     * 下单金额
+     */
+    private BigDecimal createdAmount;
+
+    /**
+     * 支付订单数
+     */
+    private Long paidOrders;
+
+    /**
+     * 支付件数
+     */
+    private Long paidUnits;
+
+    /**
+     * 支付金额
+     */
+    private BigDecimal paidAmount;
+
+    /**
+     * 取消订单数
+     */
+    private Long cancelledOrders;
+
+    /**
+     * 取消件数
+     */
+    private Long cancelledUnits;
+
+    /**
+     * 取消金额
+     */
+    private BigDecimal cancelledAmount;
+}
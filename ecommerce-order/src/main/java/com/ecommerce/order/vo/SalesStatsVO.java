@@ -0,0 +1,39 @@
+package com.ecommerce.order.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 实时销售统计VO
+ */
+@Data
+public class SalesStatsVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 统计窗口（分钟，含当前分钟）
+     */
+    private Integer windowMinutes;
+
+    /**
+     * 参与汇总的实例数
+     */
+    private Integer instances;
+
+    /**
+     * 窗口汇总
+     */
+    private SalesCounterVO total;
+
+    /**
+     * 按分钟统计（时间正序）
+     */
+    private List<SalesCounterVO> minutes;
+
+    /**
+     * 热销商品（按支付金额倒序）
+     */
+    private List<SalesCounterVO> topProducts;
+}
@@ -0,0 +1,239 @@
+package com.ecommerce.order.writer;
+
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderOutbox;
+import com.ecommerce.order.mapper.OrderMapper;
+import com.ecommerce.order.outbox.OrderOutboxWriter;
+import com.ecommerce.order.sharding.OrderShardRouter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单组提交写入器
+ *
+ * 在一个很小的时间/数量窗口内收集并发的订单插入，用一条多行INSERT在同一个事务中提交，
+ * 订单附带的发件箱事件在同一事务中写入；每个调用方的Future在其订单行提交成功后完成
+ */
+@Slf4j
+@Component
+public class OrderBatchWriter {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderOutboxWriter orderOutboxWriter;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 是否开启组提交（关闭时不启动写入线程、不注册指标，订单由调用方单条插入）
+     */
+    @Value("${order.batch-writer.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 每批最大订单数
+     */
+    @Value("${order.batch-writer.max-batch-size:100}")
+    private int maxBatchSize;
+
+    /**
+     * 攒批窗口（毫秒）
+     */
+    @Value("${order.batch-writer.window-millis:5}")
+    private long windowMillis;
+
+    /**
+     * 等待队列容量，满时直接拒绝
+     */
+    @Value("${order.batch-writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * 写入线程数
+     */
+    @Value("${order.batch-writer.threads:2}")
+    private int threads;
+
+    private BlockingQueue<PendingOrder> queue;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private DistributionSummary batchSizeSummary;
+
+    private Timer commitTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        batchSizeSummary = DistributionSummary.builder("order.writer.batch.size")
+                .description("组提交每批订单数")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        commitTimer = Timer.builder("order.writer.commit.latency")
+                .description("组提交事务耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("order.writer.queue.size", queue, BlockingQueue::size);
+
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::runLoop, "order-batch-writer-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("订单组提交写入器启动：threads={}, maxBatchSize={}, windowMillis={}",
+                threads, maxBatchSize, windowMillis);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * 提交订单插入
+     * @param events 与订单一起提交的发件箱事件
+     * @return 订单落库（事务提交）后完成的Future
+     */
+    public CompletableFuture<Order> submit(Order order, List<OrderOutbox> events) {
+        PendingOrder pending = new PendingOrder(order, events);
+        if (!running || !queue.offer(pending)) {
+            pending.future.completeExceptionally(new BusinessException("订单写入繁忙，请稍后重试"));
+        }
+        return pending.future;
+    }
+
+    private void runLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // 在窗口内继续攒批，达到上限立即提交
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // 分库时按订单所在分库分别提交
+                Map<Integer, List<PendingOrder>> batchByShard = orderShardRouter.groupByShard(batch,
+                        pending -> orderShardRouter.shardOfOrderNo(pending.order.getOrderNo()));
+                batchByShard.forEach((shard, shardBatch) -> orderShardRouter.run(shard, () -> flush(shardBatch)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("订单组提交异常：{}", e.getMessage(), e);
+                for (PendingOrder pending : batch) {
+                    pending.future.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingOrder> batch) {
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<OrderOutbox> events = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            if (pending.order.getCreateTime() == null) {
+                pending.order.setCreateTime(LocalDateTime.now());
+            }
+            orders.add(pending.order);
+            events.addAll(pending.events);
+        }
+
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                orderMapper.registerOrderNos(orders);
+                orderMapper.insertBatch(orders);
+                orderOutboxWriter.save(events);
+            });
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(batch.size());
+            for (PendingOrder pending : batch) {
+                pending.future.complete(pending.order);
+            }
+        } catch (Exception e) {
+            // 整批失败（如订单号重复），逐行重试以把失败准确反馈给对应调用方
+            log.warn("订单批量写入失败，逐行重试：{}条，{}", batch.size(), e.getMessage());
+            for (PendingOrder pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        orderMapper.registerOrderNos(Collections.singletonList(pending.order));
+                        orderMapper.insert(pending.order);
+                        orderOutboxWriter.save(pending.events);
+                    });
+                    pending.future.complete(pending.order);
+                } catch (Exception rowException) {
+                    pending.future.completeExceptionally(rowException);
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待落库的订单
+     */
+    private static class PendingOrder {
+        private final Order order;
+        private final List<OrderOutbox> events;
+        private final CompletableFuture<Order> future = new CompletableFuture<>();
+
+        PendingOrder(Order order, List<OrderOutbox> events) {
+            this.order = order;
+            this.events = events;
+        }
+    }
+}
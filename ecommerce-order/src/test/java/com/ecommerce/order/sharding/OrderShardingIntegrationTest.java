@@ -0,0 +1,149 @@
+package com.ecommerce.order.sharding;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.mapper.OrderMapper;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 订单分库集成测试：Testcontainers 启动一个MySQL实例，建两个分库（导入订单表结构），
+ * 只装配分库数据源、路由和订单Mapper，验证按用户路由、分库内事务和旧订单号定位，没有Docker时跳过
+ */
+@SpringBootTest(classes = OrderShardingIntegrationTest.ShardingTestApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class OrderShardingIntegrationTest {
+
+    private static final int SHARD_COUNT = 2;
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withUsername("root")
+            .withInitScript("db/order-shards.sql");
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        registry.add("order.sharding.enabled", () -> "true");
+        registry.add("order.sharding.max-active", () -> "5");
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            String database = "ecommerce_order_" + shard;
+            registry.add("order.sharding.databases[" + shard + "].url", () -> "jdbc:mysql://" + MYSQL.getHost() + ":"
+                    + MYSQL.getFirstMappedPort() + "/" + database + "?useSSL=false&allowPublicKeyRetrieval=true");
+            registry.add("order.sharding.databases[" + shard + "].username", MYSQL::getUsername);
+            registry.add("order.sharding.databases[" + shard + "].password", MYSQL::getPassword);
+        }
+    }
+
+    @Test
+    void ordersAreRoutedToTheShardOfTheUser() {
+        assertThat(orderShardRouter.getShardCount()).isEqualTo(SHARD_COUNT);
+        for (long userId = 1000; userId < 1010; userId++) {
+            Order order = newOrder(orderShardRouter.generateOrderNo(userId), userId);
+            int shard = orderShardRouter.shardOfUser(userId);
+            assertThat(orderShardRouter.shardOfOrderNo(order.getOrderNo())).isEqualTo(shard);
+
+            insertInShard(shard, order);
+
+            for (int i = 0; i < SHARD_COUNT; i++) {
+                assertThat(countInShard(i, order.getOrderNo())).isEqualTo(i == shard ? 1L : 0L);
+            }
+        }
+    }
+
+    @Test
+    void rollbackInShardLeavesNoOrder() {
+        long userId = 2001;
+        int shard = orderShardRouter.shardOfUser(userId);
+        Order order = newOrder(orderShardRouter.generateOrderNo(userId), userId);
+        insertInShard(shard, order);
+
+        // 同一订单号再次写入：登记表主键冲突，整个事务（含订单行）回滚
+        Order duplicate = newOrder(order.getOrderNo(), userId);
+        assertThatThrownBy(() -> insertInShard(shard, duplicate)).isInstanceOf(DuplicateKeyException.class);
+
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            assertThat(countInShard(i, order.getOrderNo())).isEqualTo(i == shard ? 1L : 0L);
+        }
+    }
+
+    @Test
+    void legacyOrderNoIsLocatedByScanningShards() {
+        String legacyOrderNo = IdUtil.getSnowflakeNextIdStr();
+        assertThat(orderShardRouter.shardOfOrderNo(legacyOrderNo)).isEqualTo(-1);
+
+        insertInShard(1, newOrder(legacyOrderNo, 3001L));
+
+        assertThat(orderShardRouter.locateOrder(legacyOrderNo)).isEqualTo(1);
+    }
+
+    private void insertInShard(int shard, Order order) {
+        orderShardRouter.run(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+            orderMapper.insert(order);
+            orderMapper.registerOrderNos(Collections.singletonList(order));
+        }));
+    }
+
+    private long countInShard(int shard, String orderNo) {
+        return orderShardRouter.execute(shard, () -> {
+            LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(Order::getOrderNo, orderNo);
+            return orderMapper.selectCount(wrapper);
+        });
+    }
+
+    private static Order newOrder(String orderNo, Long userId) {
+        Order order = new Order();
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setProductId(1L);
+        order.setProductName("分库测试商品");
+        order.setProductPrice(new BigDecimal("9.90"));
+        order.setQuantity(1);
+        order.setTotalAmount(new BigDecimal("9.90"));
+        order.setStatus(0);
+        order.setCreateTime(LocalDateTime.now());
+        return order;
+    }
+
+    /**
+     * 只装配分库相关Bean（不连接Redis、RabbitMQ和其他服务）
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {RedisAutoConfiguration.class, RabbitAutoConfiguration.class})
+    @Import({OrderShardingConfig.class, OrderShardingProperties.class, OrderShardRouter.class})
+    @MapperScan("com.ecommerce.order.mapper")
+    static class ShardingTestApplication {
+    }
+}
@@ -0,0 +1,75 @@
+-- 订单分库集成测试：同一MySQL实例中建两个分库，表结构同 docker/mysql/init/init.sql
+
+CREATE DATABASE IF NOT EXISTS `ecommerce_order_0` DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
+USE `ecommerce_order_0`;
+
+CREATE TABLE `tb_order` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `user_id` bigint NOT NULL COMMENT '用户ID',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `product_name` varchar(100) NOT NULL COMMENT '商品名称',
+  `product_price` decimal(10,2) NOT NULL COMMENT '商品单价',
+  `quantity` int NOT NULL COMMENT '购买数量',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '订单总金额',
+  `status` tinyint DEFAULT '0' COMMENT '订单状态：0-待支付 1-已支付 2-已取消 3-已完成 4-已关闭',
+  `payment_method` tinyint DEFAULT NULL COMMENT '支付方式：1-支付宝 2-微信',
+  `payment_time` datetime DEFAULT NULL COMMENT '支付时间',
+  `address` varchar(200) DEFAULT NULL COMMENT '收货地址',
+  `receiver` varchar(50) DEFAULT NULL COMMENT '收货人',
+  `receiver_phone` varchar(11) DEFAULT NULL COMMENT '收货人电话',
+  `remark` varchar(200) DEFAULT NULL COMMENT '备注',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  `deleted` tinyint DEFAULT '0' COMMENT '逻辑删除：0-未删除 1-已删除',
+  PRIMARY KEY (`id`, `create_time`),
+  UNIQUE KEY `uk_order_no` (`order_no`, `create_time`),
+  KEY `idx_user_create` (`user_id`, `create_time`, `id`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表'
+PARTITION BY RANGE COLUMNS (`create_time`) (
+  PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+CREATE TABLE `tb_order_no` (
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '登记时间',
+  PRIMARY KEY (`order_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单号登记表';
+
+CREATE DATABASE IF NOT EXISTS `ecommerce_order_1` DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
+USE `ecommerce_order_1`;
+
+CREATE TABLE `tb_order` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `user_id` bigint NOT NULL COMMENT '用户ID',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `product_name` varchar(100) NOT NULL COMMENT '商品名称',
+  `product_price` decimal(10,2) NOT NULL COMMENT '商品单价',
+  `quantity` int NOT NULL COMMENT '购买数量',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '订单总金额',
+  `status` tinyint DEFAULT '0' COMMENT '订单状态：0-待支付 1-已支付 2-已取消 3-已完成 4-已关闭',
+  `payment_method` tinyint DEFAULT NULL COMMENT '支付方式：1-支付宝 2-微信',
+  `payment_time` datetime DEFAULT NULL COMMENT '支付时间',
+  `address` varchar(200) DEFAULT NULL COMMENT '收货地址',
+  `receiver` varchar(50) DEFAULT NULL COMMENT '收货人',
+  `receiver_phone` varchar(11) DEFAULT NULL COMMENT '收货人电话',
+  `remark` varchar(200) DEFAULT NULL COMMENT '备注',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  `deleted` tinyint DEFAULT '0' COMMENT '逻辑删除：0-未删除 1-已删除',
+  PRIMARY KEY (`id`, `create_time`),
+  UNIQUE KEY `uk_order_no` (`order_no`, `create_time`),
+  KEY `idx_user_create` (`user_id`, `create_time`, `id`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表'
+PARTITION BY RANGE COLUMNS (`create_time`) (
+  PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+CREATE TABLE `tb_order_no` (
+  `order_no` varchar(50) NOT NULL COMMENT '订单号',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '登记时间',
+  PRIMARY KEY (`order_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单号登记表';
@@ -4,12 +4,14 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 商品服务启动类
  */
 @SpringBootApplication(scanBasePackages = {"com.ecommerce.product", "com.ecommerce.common"})
 @EnableDiscoveryClient
+@EnableScheduling
 @MapperScan("com.ecommerce.product.mapper")
 public class ProductApplication {
     
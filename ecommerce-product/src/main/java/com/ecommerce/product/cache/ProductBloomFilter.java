@@ -0,0 +1,306 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.mapper.ProductMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 商品ID布隆过滤器（实例本地）
+ *
+ * 启动时从 tb_product 按ID顺序全量构建，之后定期增量同步ID大于已同步最大ID的新商品（商品ID自增），
+ * 并定期全量重建以剔除已删除商品、按商品数扩容。过滤器判定不存在的ID直接返回商品不存在，不再访问缓存和数据库；
+ * 构建完成前全部放行
+ */
+@Slf4j
+@Component
+public class ProductBloomFilter {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 是否启用
+     */
+    @Value("${product.bloom.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 最少容量（商品数），实际容量取该值与当前商品数两倍中的较大者
+     */
+    @Value("${product.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    /**
+     * 目标误判率
+     */
+    @Value("${product.bloom.fpp:0.01}")
+    private double fpp;
+
+    /**
+     * 增量同步间隔（秒）
+     */
+    @Value("${product.bloom.sync-interval:10}")
+    private long syncInterval;
+
+    /**
+     * 全量重建间隔（分钟）
+     */
+    @Value("${product.bloom.rebuild-interval:60}")
+    private long rebuildInterval;
+
+    private static final int BATCH_SIZE = 5000;
+
+    private volatile Bits bits;
+
+    private ScheduledExecutorService executor;
+
+    private Counter rejected;
+
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        rejected = meterRegistry.counter("product.bloom.checks", "result", "rejected");
+        falsePositives = meterRegistry.counter("product.bloom.checks", "result", "false_positive");
+        Gauge.builder("product.bloom.memory", this, f -> f.bits == null ? 0 : f.bits.words.length() * 8.0)
+                .baseUnit("bytes").description("布隆过滤器位数组占用内存").register(meterRegistry);
+        Gauge.builder("product.bloom.size", this, f -> f.bits == null ? 0 : f.bits.count.get())
+                .description("布隆过滤器中的商品数").register(meterRegistry);
+        Gauge.builder("product.bloom.expected.fpp", this, ProductBloomFilter::getExpectedFpp)
+                .description("按当前商品数估算的误判率").register(meterRegistry);
+        Gauge.builder("product.bloom.observed.fpp", this, ProductBloomFilter::getObservedFpp)
+                .description("不存在的ID中被放行的比例").register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "product-bloom-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::rebuild);
+        executor.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::rebuild, rebuildInterval, rebuildInterval, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 商品ID是否可能存在（未启用或未构建完成时返回true）
+     */
+    public boolean mightContain(Long productId) {
+        Bits current = bits;
+        if (current == null || productId == null || current.mightContain(productId)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 新增商品后加入过滤器（其他实例由增量同步补充）
+     */
+    public void put(Long productId) {
+        Bits current = bits;
+        if (current != null) {
+            current.put(productId);
+        }
+    }
+
+    /**
+     * 过滤器放行但商品不存在（误判）
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * 按当前商品数估算的误判率：(1 - e^(-kn/m))^k
+     */
+    public double getExpectedFpp() {
+        Bits current = bits;
+        if (current == null) {
+            return 0;
+        }
+        double fill = 1 - Math.exp(-(double) current.hashCount * current.count.get() / current.bitCount);
+        return Math.pow(fill, current.hashCount);
+    }
+
+    /**
+     * 实际误判率：不存在的ID中被过滤器放行的比例
+     */
+    public double getObservedFpp() {
+        double passed = falsePositives.count();
+        double total = passed + rejected.count();
+        return total == 0 ? 0 : passed / total;
+    }
+
+    /**
+     * 全量重建：按ID顺序读取全部未删除商品，构建完成后替换
+     */
+    private void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            long total = productMapper.selectCount(null);
+            Bits rebuilt = new Bits(Math.max(expectedInsertions, total * 2), fpp);
+            load(rebuilt, null);
+            bits = rebuilt;
+            log.info("商品布隆过滤器构建完成：商品{}个，{}位，{}个哈希，内存{}KB，耗时{}ms", rebuilt.count.get(),
+                    rebuilt.bitCount, rebuilt.hashCount, rebuilt.words.length() * 8 / 1024,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("商品布隆过滤器构建失败", e);
+        }
+    }
+
+    /**
+     * 增量同步新商品（超出容量时全量重建），新商品的空值缓存一并失效
+     */
+    private void sync() {
+        Bits current = bits;
+        if (current == null) {
+            return;
+        }
+        try {
+            List<Long> added = new ArrayList<>();
+            load(current, added);
+            if (added.isEmpty()) {
+                return;
+            }
+            productCache.evict(added);
+            log.info("商品布隆过滤器同步新商品：{}个", added.size());
+            if (current.count.get() > current.capacity) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("商品布隆过滤器同步失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从已加载的最大ID之后分批读取商品ID加入过滤器
+     * @param added 收集新加入的商品ID，为空时不收集
+     */
+    private void load(Bits target, List<Long> added) {
+        while (true) {
+            List<Long> ids = productMapper.selectIdsAfter(target.maxId, BATCH_SIZE);
+            for (Long id : ids) {
+                target.put(id);
+            }
+            if (added != null) {
+                added.addAll(ids);
+            }
+            if (!ids.isEmpty()) {
+                target.maxId = ids.get(ids.size() - 1);
+            }
+            if (ids.size() < BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 位数组（线程安全的置位，不支持删除）
+     */
+    private static class Bits {
+
+        private final long capacity;
+
+        private final long bitCount;
+
+        private final int hashCount;
+
+        private final AtomicLongArray words;
+
+        private final AtomicLong count = new AtomicLong();
+
+        /**
+         * 已加载的最大商品ID（只在同步线程中读写）
+         */
+        private long maxId;
+
+        Bits(long capacity, double fpp) {
+            this.capacity = capacity;
+            long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+            this.bitCount = (long) words.length() << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        void put(long id) {
+            boolean changed = false;
+            long hash = mix(id);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = indexOf(hash, i);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long old;
+                do {
+                    old = words.get(word);
+                    if ((old & mask) != 0) {
+                        break;
+                    }
+                    changed = true;
+                } while (!words.compareAndSet(word, old, old | mask));
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(long id) {
+            long hash = mix(id);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = indexOf(hash, i);
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 双重哈希：h1 + i * h2
+         */
+        private long indexOf(long hash, int i) {
+            long combined = (int) hash + (long) i * (int) (hash >>> 32);
+            return (combined & Long.MAX_VALUE) % bitCount;
+        }
+
+        /**
+         * 64位混淆（SplitMix64），使连续ID均匀分布
+         */
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.ecommerce.product.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.utils.RedisLockUtil;
+import com.ecommerce.common.utils.TransactionUtil;
+import com.ecommerce.product.entity.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 商品二级缓存（L1本地 + L2 Redis product:info:{商品ID}）
+ *
+ * 商品信息在库存扣减/补货后失效：删除L2并通过Redis发布订阅广播商品ID，各实例（包括自身）收到后清除L1。
+ * 广播丢失时L1最多在过期时间后自然失效；读取中途收到失效广播时不回填，避免把旧值重新放回缓存。
+ * L2未命中时同一商品在实例内只有一个线程回源，其余线程等待其结果，等待超时先返回失效前的旧值；
+ * 开启回源互斥锁后跨实例也只有一个实例回源，其他实例轮询L2等待回填。
+ * 确认不存在的商品缓存短期空值（L1同样缓存，新商品同步到布隆过滤器时失效）。
+ * 缓存条目带逻辑过期时间：过期后读取方直接拿到旧值，由有界后台线程池刷新一次；
+ * Redis过期时间（长于逻辑过期）和逻辑过期时间都加随机抖动，批量写入的条目不会同时过期
+ */
+@Slf4j
+@Component
+public class ProductCache implements MessageListener {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisLockUtil redisLockUtil;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * L1最大商品数
+     */
+    @Value("${product.cache.local-size:10000}")
+    private long localSize;
+
+    /**
+     * L1过期时间（秒），失效广播丢失时的兜底
+     */
+    @Value("${product.cache.local-ttl:30}")
+    private long localTtl;
+
+    /**
+     * L2过期时间（分钟）
+     */
+    @Value("${product.cache.ttl:30}")
+    private long ttl;
+
+    /**
+     * 失效后旧值保留时间（秒），回源等待超时时返回
+     */
+    @Value("${product.cache.stale-ttl:60}")
+    private long staleTtl;
+
+    /**
+     * 等待其他线程/实例回源的超时时间（毫秒）
+     */
+    @Value("${product.cache.load-wait-timeout:200}")
+    private long loadWaitTimeout;
+
+    /**
+     * 是否启用跨实例回源互斥锁
+     */
+    @Value("${product.cache.load-lock-enabled:false}")
+    private boolean loadLockEnabled;
+
+    /**
+     * 回源互斥锁过期时间（秒）
+     */
+    @Value("${product.cache.load-lock-ttl:3}")
+    private long loadLockTtl;
+
+    /**
+     * 商品不存在时空值的L2过期时间（秒）
+     */
+    @Value("${product.cache.null-ttl:60}")
+    private long nullTtl;
+
+    /**
+     * 是否启用逻辑过期（关闭时只按Redis过期时间失效）
+     */
+    @Value("${product.cache.logical-expire-enabled:true}")
+    private boolean logicalExpireEnabled;
+
+    /**
+     * 逻辑过期时间（秒），Redis过期时间至少为其两倍
+     */
+    @Value("${product.cache.logical-ttl:300}")
+    private long logicalTtl;
+
+    /**
+     * 过期时间随机抖动比例（在基础时间上增加 0 ~ 该比例）
+     */
+    @Value("${product.cache.ttl-jitter:0.2}")
+    private double ttlJitter;
+
+    /**
+     * 后台刷新线程数
+     */
+    @Value("${product.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    /**
+     * 后台刷新队列长度，队列满时本次不刷新（下次读取再触发）
+     */
+    @Value("${product.cache.refresh-queue:1000}")
+    private int refreshQueue;
+
+    private static final long LOAD_POLL_INTERVAL = 10;
+
+    private Cache<Long, ProductCacheEntry> localCache;
+
+    /**
+     * 被失效的L1旧值
+     */
+    private Cache<Long, ProductCacheEntry> staleCache;
+
+    /**
+     * 正在回源的商品
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<ProductCacheEntry>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 正在后台刷新的商品
+     */
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    private Counter dbLoads;
+
+    private Counter coalescedLoads;
+
+    private Counter staleHits;
+
+    private Counter refreshes;
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    /**
+     * 按商品ID分段的失效代数：每次清除L1加一，读取前后不一致说明期间该商品（或同段商品）发生过失效
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(localTtl, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "product.local");
+        staleCache = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(staleTtl, TimeUnit.SECONDS)
+                .build();
+        dbLoads = meterRegistry.counter("product.cache.loads", "result", "db");
+        coalescedLoads = meterRegistry.counter("product.cache.loads", "result", "coalesced");
+        staleHits = meterRegistry.counter("product.cache.loads", "result", "stale");
+        refreshes = meterRegistry.counter("product.cache.loads", "result", "refresh");
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshQueue), r -> {
+                    Thread thread = new Thread(r, "product-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 读取商品：L1 -> L2 -> 回源（商品不存在时缓存空值）。返回的对象为缓存共享实例，调用方不能修改
+     */
+    public Product get(Long productId, Function<Long, Product> loader) {
+        ProductCacheEntry entry = localCache.getIfPresent(productId);
+        if (entry == null) {
+            entry = getShared(productId, loader);
+        }
+        if (entry.isExpiredAt(System.currentTimeMillis())) {
+            // 逻辑过期：直接返回旧值，后台刷新一次
+            refreshAsync(productId, loader);
+        }
+        return entry.getProduct();
+    }
+
+    /**
+     * L1未命中：读取L2，未命中时单飞回源
+     */
+    private ProductCacheEntry getShared(Long productId, Function<Long, Product> loader) {
+        long generation = generationOf(productId);
+        ProductCacheEntry entry = readRemote(productId);
+        if (entry == null) {
+            CompletableFuture<ProductCacheEntry> future = new CompletableFuture<>();
+            CompletableFuture<ProductCacheEntry> inFlight = loading.putIfAbsent(productId, future);
+            if (inFlight != null) {
+                // 同一商品已有线程在回源，等待其结果（由回源线程回填）
+                coalescedLoads.increment();
+                return await(productId, inFlight);
+            }
+            try {
+                entry = load(productId, loader, generation);
+                future.complete(entry);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(productId, future);
+            }
+        }
+        if (generationOf(productId) == generation) {
+            localCache.put(productId, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 回源（L2未命中时）
+     */
+    private ProductCacheEntry load(Long productId, Function<Long, Product> loader, long generation) {
+        // 拿到回源资格后再查一次L2：上一轮回源可能刚回填
+        ProductCacheEntry entry = readRemote(productId);
+        if (entry != null) {
+            return entry;
+        }
+
+        String lockKey = RedisKeyConstant.buildProductLoadLockKey(productId);
+        String lockValue = null;
+        if (loadLockEnabled) {
+            lockValue = redisLockUtil.tryLock(lockKey, loadLockTtl);
+            if (lockValue == null) {
+                // 其他实例正在回源：轮询L2，超时后自行回源
+                entry = pollRemote(productId);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+        }
+        try {
+            return loadFromDb(productId, loader, generation);
+        } finally {
+            if (lockValue != null) {
+                redisLockUtil.unlock(lockKey, lockValue);
+            }
+        }
+    }
+
+    /**
+     * 查询数据库并回填L2（期间发生失效时不回填），商品不存在时回填短期空值
+     */
+    private ProductCacheEntry loadFromDb(Long productId, Function<Long, Product> loader, long generation) {
+        Product product = loader.apply(productId);
+        dbLoads.increment();
+        long now = System.currentTimeMillis();
+        ProductCacheEntry entry;
+        long hardTtl;
+        if (product == null) {
+            entry = new ProductCacheEntry(null, Long.MAX_VALUE);
+            hardTtl = jitter(nullTtl);
+        } else if (logicalExpireEnabled) {
+            entry = new ProductCacheEntry(product, now + TimeUnit.SECONDS.toMillis(jitter(logicalTtl)));
+            hardTtl = jitter(Math.max(TimeUnit.MINUTES.toSeconds(ttl), logicalTtl * 2));
+        } else {
+            entry = new ProductCacheEntry(product, Long.MAX_VALUE);
+            hardTtl = jitter(TimeUnit.MINUTES.toSeconds(ttl));
+        }
+        if (generationOf(productId) == generation) {
+            redisTemplate.opsForValue().set(RedisKeyConstant.PRODUCT_INFO_PREFIX + productId, entry,
+                    hardTtl, TimeUnit.SECONDS);
+        }
+        if (product != null) {
+            staleCache.invalidate(productId);
+        }
+        return entry;
+    }
+
+    /**
+     * 提交后台刷新（同一商品同时只有一个刷新，正在回源或队列已满时跳过）
+     */
+    private void refreshAsync(Long productId, Function<Long, Product> loader) {
+        if (loading.containsKey(productId) || !refreshing.add(productId)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(productId, loader);
+                } catch (Exception e) {
+                    log.warn("刷新商品缓存失败：商品ID={}，{}", productId, e.getMessage());
+                } finally {
+                    refreshing.remove(productId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(productId);
+        }
+    }
+
+    /**
+     * 后台刷新：L2已被其他实例刷新时只更新L1；开启回源互斥锁时未抢到锁的实例跳过
+     */
+    private void refresh(Long productId, Function<Long, Product> loader) {
+        long generation = generationOf(productId);
+        ProductCacheEntry entry = readRemote(productId);
+        if (entry == null || entry.isExpiredAt(System.currentTimeMillis())) {
+            String lockKey = RedisKeyConstant.buildProductLoadLockKey(productId);
+            String lockValue = null;
+            if (loadLockEnabled) {
+                lockValue = redisLockUtil.tryLock(lockKey, loadLockTtl);
+                if (lockValue == null) {
+                    return;
+                }
+            }
+            try {
+                entry = loadFromDb(productId, loader, generation);
+                refreshes.increment();
+            } finally {
+                if (lockValue != null) {
+                    redisLockUtil.unlock(lockKey, lockValue);
+                }
+            }
+        }
+        if (generationOf(productId) == generation) {
+            localCache.put(productId, entry);
+        }
+    }
+
+    /**
+     * 读取L2（升级前写入的旧格式值视为未命中）
+     */
+    private ProductCacheEntry readRemote(Long productId) {
+        Object value = redisTemplate.opsForValue().get(RedisKeyConstant.PRODUCT_INFO_PREFIX + productId);
+        return value instanceof ProductCacheEntry ? (ProductCacheEntry) value : null;
+    }
+
+    /**
+     * 基础过期时间加上 0 ~ ttlJitter 比例的随机抖动
+     */
+    private long jitter(long seconds) {
+        return seconds + (long) (seconds * ttlJitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * 等待实例内的回源结果，超时先返回旧值（没有旧值继续等待）
+     */
+    private ProductCacheEntry await(Long productId, CompletableFuture<ProductCacheEntry> inFlight) {
+        try {
+            try {
+                return inFlight.get(loadWaitTimeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                ProductCacheEntry stale = staleCache.getIfPresent(productId);
+                if (stale != null) {
+                    staleHits.increment();
+                    return stale;
+                }
+                return inFlight.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待商品回源被中断", e);
+        }
+    }
+
+    /**
+     * 轮询等待其他实例回填L2
+     */
+    private ProductCacheEntry pollRemote(Long productId) {
+        long deadline = System.currentTimeMillis() + loadWaitTimeout;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOAD_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ProductCacheEntry entry = readRemote(productId);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 商品信息变更后失效缓存（当前有事务时在提交后执行）：删除L2，清除本地L1并广播其他实例
+     */
+    public void evict(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(productIds);
+        TransactionUtil.afterCommit(() -> {
+            List<String> keys = new ArrayList<>(ids.size());
+            for (Long productId : ids) {
+                keys.add(RedisKeyConstant.PRODUCT_INFO_PREFIX + productId);
+            }
+            redisTemplate.delete(keys);
+            invalidateLocal(ids);
+            try {
+                stringRedisTemplate.convertAndSend(RedisKeyConstant.PRODUCT_CACHE_CHANNEL, StrUtil.join(",", ids));
+            } catch (Exception e) {
+                // 广播失败时其他实例的L1在过期后失效
+                log.warn("商品缓存失效广播失败：{}，{}", ids, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 收到其他实例（或自身）的失效广播：清除L1
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Long> ids = new ArrayList<>();
+        for (String id : StrUtil.split(body, ',', true, true)) {
+            ids.add(Long.valueOf(id));
+        }
+        invalidateLocal(ids);
+    }
+
+    private void invalidateLocal(List<Long> productIds) {
+        for (Long productId : productIds) {
+            generations.incrementAndGet(stripeOf(productId));
+        }
+        // 保留旧值，回源等待超时时使用
+        staleCache.putAll(localCache.getAllPresent(productIds));
+        localCache.invalidateAll(productIds);
+    }
+
+    private long generationOf(Long productId) {
+        return generations.get(stripeOf(productId));
+    }
+
+    private static int stripeOf(Long productId) {
+        return (int) (productId & (GENERATION_STRIPES - 1));
+    }
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 商品缓存条目（L1/L2 product:info:{商品ID} 的值）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCacheEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 商品，为空表示商品不存在
+     */
+    private Product product;
+
+    /**
+     * 逻辑过期时间（毫秒时间戳），超过后先返回旧值再后台刷新
+     */
+    private long expireAt;
+
+    public boolean isExpiredAt(long now) {
+        return now >= expireAt;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ecommerce.product.config;
+
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.product.cache.ProductCache;
+import com.ecommerce.product.stock.StockQuotaManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis 发布订阅配置
+ */
+@Configuration
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory,
+                                                                       StockQuotaManager stockQuotaManager,
+                                                                       ProductCache productCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        // 库存售罄/补货广播
+        container.addMessageListener(stockQuotaManager, new ChannelTopic(RedisKeyConstant.PRODUCT_STOCK_CHANNEL));
+        // 商品缓存失效广播（清除各实例本地缓存）
+        container.addMessageListener(productCache, new ChannelTopic(RedisKeyConstant.PRODUCT_CACHE_CHANNEL));
+        return container;
+    }
+}
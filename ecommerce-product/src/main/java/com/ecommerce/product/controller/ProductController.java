@@ -1,6 +1,11 @@
 package com.ecommerce.product.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.dto.StockLineDTO;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
 import com.ecommerce.common.result.Result;
 import com.ecommerce.product.entity.Product;
 import com.ecommerce.product.service.ProductService;
@@ -44,16 +49,29 @@ public class ProductController {
     @ApiOperation("根据ID查询商品")
     public Result<Product> getProductById(@PathVariable Long id) {
         Product product = productService.getProductById(id);
+        if (product == null) {
+            throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+        }
         return Result.success(product);
     }
 
     /**
-     * 批量查询商品（内部调用）
+     * 查询商品摘要（内部调用）
+     */
+    @GetMapping("/internal/brief/{productId}")
+    @ApiOperation(value = "查询商品摘要", hidden = true)
+    public Result<ProductBriefDTO> getProductBrief(@PathVariable Long productId) {
+        ProductBriefDTO product = productService.getProductBrief(productId);
+        return Result.success(product);
+    }
+
+    /**
+     * 批量查询商品摘要（内部调用）
      */
     @PostMapping("/internal/batch")
     @ApiOperation(value = "批量查询商品", hidden = true)
-    public Result<List<Product>> getProductByIds(@RequestBody List<Long> productIds) {
-        List<Product> products = productService.getProductByIds(productIds);
+    public Result<List<ProductBriefDTO>> getProductByIds(@RequestBody List<Long> productIds) {
+        List<ProductBriefDTO> products = productService.getProductBriefs(productIds);
         return Result.success(products);
     }
 
@@ -77,6 +95,16 @@ public class ProductController {
         return Result.success(result);
     }
 
+    /**
+     * 预占库存（内部调用）：校验、扣减库存并返回商品快照，下单只需一次调用
+     */
+    @PostMapping("/internal/reserve/{productId}/{quantity}")
+    @ApiOperation(value = "预占库存", hidden = true)
+    public Result<ProductSnapshotDTO> reserveStock(@PathVariable Long productId, @PathVariable Integer quantity) {
+        ProductSnapshotDTO snapshot = productService.reserveStock(productId, quantity);
+        return Result.success(snapshot);
+    }
+
     /**
      * 增加库存（内部调用）
      */
@@ -86,4 +114,25 @@ public class ProductController {
         boolean result = productService.addStock(productId, quantity);
         return Result.success(result);
     }
+
+    /**
+     * 批量预占库存（内部调用，全部成功或全部失败）
+     */
+    @PostMapping("/internal/reserve-batch")
+    @ApiOperation(value = "批量预占库存", hidden = true)
+    public Result<Boolean> reserveStockBatch(@RequestBody List<StockLineDTO> lines) {
+        boolean result = productService.reserveStockBatch(lines);
+        return Result.success(result);
+    }
+
+    /**
+     * 批量归还库存（内部调用）
+     */
+    @PostMapping("/internal/release-batch")
+    @ApiOperation(value = "批量归还库存", hidden = true)
+    public Result<Boolean> releaseStockBatch(@RequestBody List<StockLineDTO> lines,
+                                             @RequestParam(value = "requestId", required = false) String requestId) {
+        boolean result = productService.releaseStockBatch(lines, requestId);
+        return Result.success(result);
+    }
 }
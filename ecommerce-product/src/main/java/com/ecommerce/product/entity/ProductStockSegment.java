@@ -0,0 +1,43 @@
+package com.ecommerce.product.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 热点商品分段库存
+ */
+@Data
+@TableName("tb_product_stock_segment")
+public class ProductStockSegment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 分段编号
+     */
+    private Integer segmentNo;
+
+    /**
+     * 分段库存
+     */
+    private Integer stock;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -1,11 +1,15 @@
 package com.ecommerce.product.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ecommerce.common.dto.StockLineDTO;
 import com.ecommerce.product.entity.Product;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
 /**
  * 商品Mapper
  */
@@ -19,10 +23,62 @@ public interface ProductMapper extends BaseMapper<Product> {
             "WHERE id = #{productId} AND stock >= #{quantity} AND deleted = 0")
     int deductStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
+    /**
+     * 按已售数量对账：数据库库存小于已售数量时（库存被人工调整等）扣减到0，销量照常累加
+     */
+    @Update("UPDATE tb_product SET stock = GREATEST(stock - #{quantity}, 0), sales = sales + #{quantity} " +
+            "WHERE id = #{productId} AND deleted = 0")
+    int settleSold(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
     /**
      * 增加库存
      */
     @Update("UPDATE tb_product SET stock = stock + #{quantity}, sales = sales - #{quantity} " +
             "WHERE id = #{productId} AND deleted = 0")
     int addStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * 批量扣减库存（一条语句，任一商品库存不足则该行不更新，调用方按影响行数判断）
+     */
+    @Update("<script>" +
+            "UPDATE tb_product SET " +
+            "stock = stock - CASE id <foreach collection='lines' item='l'>WHEN #{l.productId} THEN #{l.quantity} </foreach>END, " +
+            "sales = sales + CASE id <foreach collection='lines' item='l'>WHEN #{l.productId} THEN #{l.quantity} </foreach>END " +
+            "WHERE deleted = 0 AND id IN " +
+            "<foreach collection='lines' item='l' open='(' separator=',' close=')'>#{l.productId}</foreach> " +
+            "AND stock >= CASE id <foreach collection='lines' item='l'>WHEN #{l.productId} THEN #{l.quantity} </foreach>END" +
+            "</script>")
+    int deductStockBatch(@Param("lines") List<StockLineDTO> lines);
+
+    /**
+     * 批量增加库存（一条语句）
+     */
+    @Update("<script>" +
+            "UPDATE tb_product SET " +
+            "stock = stock + CASE id <foreach collection='lines' item='l'>WHEN #{l.productId} THEN #{l.quantity} </foreach>END, " +
+            "sales = sales - CASE id <foreach collection='lines' item='l'>WHEN #{l.productId} THEN #{l.quantity} </foreach>END " +
+            "WHERE deleted = 0 AND id IN " +
+            "<foreach collection='lines' item='l' open='(' separator=',' close=')'>#{l.productId}</foreach>" +
+            "</script>")
+    int addStockBatch(@Param("lines") List<StockLineDTO> lines);
+
+    /**
+     * 查询商品并加行锁（分段库存初始化/回收时使用）
+     */
+    @Select("SELECT * FROM tb_product WHERE id = #{productId} AND deleted = 0 FOR UPDATE")
+    Product selectByIdForUpdate(@Param("productId") Long productId);
+
+    /**
+     * 将分段库存汇总回写商品表
+     * 库存与销量此消彼长（stock + sales 恒定），销量按库存差值同步；单表UPDATE按从左到右求值，sales须在stock之前
+     */
+    @Update("UPDATE tb_product SET sales = sales + stock - #{stock}, stock = #{stock} " +
+            "WHERE id = #{productId} AND deleted = 0")
+    int syncStock(@Param("productId") Long productId, @Param("stock") int stock);
+
+    /**
+     * 按ID顺序分批查询未删除商品的ID（构建布隆过滤器使用）
+     */
+    @Select("SELECT id FROM tb_product WHERE deleted = 0 AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Long> selectIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
 }
@@ -0,0 +1,70 @@
+package com.ecommerce.product.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ecommerce.product.entity.ProductStockSegment;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 分段库存Mapper
+ */
+@Mapper
+public interface ProductStockSegmentMapper extends BaseMapper<ProductStockSegment> {
+
+    /**
+     * 查询商品全部分段（按分段编号排序）
+     */
+    @Select("SELECT * FROM tb_product_stock_segment WHERE product_id = #{productId} ORDER BY segment_no")
+    List<ProductStockSegment> selectByProductId(@Param("productId") Long productId);
+
+    /**
+     * 查询存在分段库存的商品ID
+     */
+    @Select("SELECT DISTINCT product_id FROM tb_product_stock_segment")
+    List<Long> selectSegmentedProductIds();
+
+    /**
+     * 汇总商品分段库存
+     */
+    @Select("SELECT COALESCE(SUM(stock), 0) FROM tb_product_stock_segment WHERE product_id = #{productId}")
+    int sumStock(@Param("productId") Long productId);
+
+    /**
+     * 批量写入分段（已存在则忽略）
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO tb_product_stock_segment (product_id, segment_no, stock) VALUES " +
+            "<foreach collection='segments' item='s' separator=','>" +
+            "(#{s.productId}, #{s.segmentNo}, #{s.stock})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("segments") List<ProductStockSegment> segments);
+
+    /**
+     * 扣减分段库存（乐观锁，只锁一个分段行）
+     */
+    @Update("UPDATE tb_product_stock_segment SET stock = stock - #{quantity} " +
+            "WHERE product_id = #{productId} AND segment_no = #{segmentNo} AND stock >= #{quantity}")
+    int deductStock(@Param("productId") Long productId, @Param("segmentNo") int segmentNo,
+                    @Param("quantity") int quantity);
+
+    /**
+     * 增加分段库存
+     */
+    @Update("UPDATE tb_product_stock_segment SET stock = stock + #{quantity} " +
+            "WHERE product_id = #{productId} AND segment_no = #{segmentNo}")
+    int addStock(@Param("productId") Long productId, @Param("segmentNo") int segmentNo,
+                 @Param("quantity") int quantity);
+
+    /**
+     * 删除商品全部分段
+     */
+    @Delete("DELETE FROM tb_product_stock_segment WHERE product_id = #{productId}")
+    int deleteByProductId(@Param("productId") Long productId);
+}
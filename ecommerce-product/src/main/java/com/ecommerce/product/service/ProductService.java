@@ -1,6 +1,9 @@
 package com.ecommerce.product.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.dto.StockLineDTO;
 import com.ecommerce.product.entity.Product;
 
 import java.util.List;
@@ -26,7 +29,17 @@ public interface ProductService {
     List<Product> getProductByIds(List<Long> productIds);
 
     /**
-     * 扣减库存（带分布式锁）
+     * 查询商品摘要（内部调用）
+     */
+    ProductBriefDTO getProductBrief(Long productId);
+
+    /**
+     * 批量查询商品摘要（内部调用）
+     */
+    List<ProductBriefDTO> getProductBriefs(List<Long> productIds);
+
+    /**
+     * 扣减库存（分布式锁或Lua原子扣减）
      */
     boolean deductStock(Long productId, Integer quantity);
 
@@ -39,4 +52,20 @@ public interface ProductService {
      * 检查库存是否充足
      */
     boolean checkStock(Long productId, Integer quantity);
+
+    /**
+     * 预占库存：校验商品、扣减库存并返回下单所需的商品快照
+     */
+    ProductSnapshotDTO reserveStock(Long productId, Integer quantity);
+
+    /**
+     * 批量预占库存（全部成功或全部失败）
+     */
+    boolean reserveStockBatch(List<StockLineDTO> lines);
+
+    /**
+     * 批量归还库存
+     * @param requestId 请求ID（可为空），同一请求ID只归还一次，用于至少一次投递的调用方重试
+     */
+    boolean releaseStockBatch(List<StockLineDTO> lines, String requestId);
 }
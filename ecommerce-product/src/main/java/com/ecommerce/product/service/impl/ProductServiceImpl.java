@@ -1,20 +1,36 @@
 package com.ecommerce.product.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.dto.ProductBriefDTO;
+import com.ecommerce.common.dto.ProductSnapshotDTO;
+import com.ecommerce.common.dto.StockLineDTO;
 import com.ecommerce.common.exception.BusinessException;
 import com.ecommerce.common.exception.ResultCode;
 import com.ecommerce.common.utils.RedisLockUtil;
+import com.ecommerce.product.cache.ProductBloomFilter;
+import com.ecommerce.product.cache.ProductCache;
 import com.ecommerce.product.entity.Product;
 import com.ecommerce.product.mapper.ProductMapper;
 import com.ecommerce.product.service.ProductService;
+import com.ecommerce.product.stock.RedisStockManager;
+import com.ecommerce.product.stock.SegmentStockManager;
+import com.ecommerce.product.stock.SegmentStockManager.SegmentDeduction;
+import com.ecommerce.product.stock.StockQuotaManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -33,6 +49,21 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private RedisLockUtil redisLockUtil;
 
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductBloomFilter productBloomFilter;
+
+    @Autowired
+    private RedisStockManager redisStockManager;
+
+    @Autowired
+    private SegmentStockManager segmentStockManager;
+
+    @Autowired
+    private StockQuotaManager stockQuotaManager;
+
     @Override
     public Page<Product> getProductPage(Integer pageNum, Integer pageSize, String keyword) {
         Page<Product> page = new Page<>(pageNum, pageSize);
@@ -53,17 +84,22 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public Product getProductById(Long productId) {
-        // 先从Redis查询
-        String key = RedisKeyConstant.PRODUCT_INFO_PREFIX + productId;
-        Product product = (Product) redisTemplate.opsForValue().get(key);
-        
+        // 布隆过滤器判定不存在的ID直接返回，不访问缓存和数据库
+        if (!productBloomFilter.mightContain(productId)) {
+            return null;
+        }
+
+        // L1本地 -> L2 Redis -> 数据库（不存在的商品缓存空值）
+        Product product = productCache.get(productId, productMapper::selectById);
         if (product == null) {
-            // Redis没有，从数据库查询
-            product = productMapper.selectById(productId);
-            if (product != null) {
-                // 缓存到Redis（30分钟）
-                redisTemplate.opsForValue().set(key, product, 30, TimeUnit.MINUTES);
-            }
+            productBloomFilter.recordFalsePositive();
+            return null;
+        }
+
+        // 分段库存商品的缓存中库存不随扣减失效，以分段汇总为准（复制后修改，不改动缓存实例）
+        if (segmentStockManager.isSegmented(productId)) {
+            product = BeanUtil.copyProperties(product, Product.class);
+            product.setStock(segmentStockManager.getAvailableStock(productId));
         }
         
         return product;
@@ -74,8 +110,47 @@ public class ProductServiceImpl implements ProductService {
         return productMapper.selectBatchIds(productIds);
     }
 
+    @Override
+    public ProductBriefDTO getProductBrief(Long productId) {
+        Product product = getProductById(productId);
+        if (product == null) {
+            throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+        }
+        return toBrief(product);
+    }
+
+    @Override
+    public List<ProductBriefDTO> getProductBriefs(List<Long> productIds) {
+        List<Product> products = getProductByIds(productIds);
+        List<ProductBriefDTO> briefs = new ArrayList<>(products.size());
+        for (Product product : products) {
+            briefs.add(toBrief(product));
+        }
+        return briefs;
+    }
+
     @Override
     public boolean deductStock(Long productId, Integer quantity) {
+        // 热点商品走分段库存
+        if (segmentStockManager.isSegmented(productId)) {
+            segmentStockManager.deduct(productId, quantity);
+            log.info("扣减库存成功（分段）：商品ID={}, 数量={}", productId, quantity);
+            return true;
+        }
+
+        // 秒杀商品从实例本地额度扣减（已售数量异步回写数据库）
+        if (stockQuotaManager.isQuotaMode(productId)) {
+            if (!stockQuotaManager.deduct(productId, quantity)) {
+                throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+            }
+            return true;
+        }
+
+        // 开启Lua模式的商品走无锁扣减
+        if (redisStockManager.isLuaMode(productId)) {
+            return deductStockWithLua(productId, quantity);
+        }
+
         // 获取分布式锁（防止超卖）
         String lockKey = RedisKeyConstant.buildStockLockKey(productId);
         String lockValue = redisLockUtil.tryLockWithRetry(lockKey, 10, 3, 100);
@@ -107,9 +182,8 @@ public class ProductServiceImpl implements ProductService {
                 throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
             }
             
-            // 删除商品缓存
-            String productKey = RedisKeyConstant.PRODUCT_INFO_PREFIX + productId;
-            redisTemplate.delete(productKey);
+            // 失效商品缓存（L2 + 各实例L1）
+            productCache.evict(Collections.singletonList(productId));
             
             log.info("扣减库存成功：商品ID={}, 数量={}", productId, quantity);
             return true;
@@ -120,18 +194,59 @@ public class ProductServiceImpl implements ProductService {
         }
     }
 
+    /**
+     * 无锁扣减库存：Lua脚本原子检查并扣减Redis库存，通过后再扣减数据库库存
+     */
+    private boolean deductStockWithLua(Long productId, Integer quantity) {
+        long remain = redisStockManager.deduct(productId, quantity);
+        if (remain == RedisStockManager.STOCK_UNINITIALIZED) {
+            // Redis库存未预热，从数据库加载后重试
+            Product product = productMapper.selectById(productId);
+            if (product == null) {
+                throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+            }
+            redisStockManager.initStock(productId, product.getStock());
+            remain = redisStockManager.deduct(productId, quantity);
+        }
+        if (remain < 0) {
+            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+        }
+
+        // 扣减数据库库存（乐观锁兜底）
+        int result = productMapper.deductStock(productId, quantity);
+        if (result <= 0) {
+            // 回滚Redis库存
+            redisStockManager.restore(productId, quantity);
+            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+        }
+
+        // 失效商品缓存（L2 + 各实例L1）
+        productCache.evict(Collections.singletonList(productId));
+
+        log.info("扣减库存成功（Lua）：商品ID={}, 数量={}, Redis剩余={}", productId, quantity, remain);
+        return true;
+    }
+
     @Override
     public boolean addStock(Long productId, Integer quantity) {
+        if (segmentStockManager.isSegmented(productId)) {
+            segmentStockManager.add(productId, quantity);
+            log.info("增加库存成功（分段）：商品ID={}, 数量={}", productId, quantity);
+            return true;
+        }
+
         int result = productMapper.addStock(productId, quantity);
         
         if (result > 0) {
-            // 更新Redis库存
-            String stockKey = RedisKeyConstant.PRODUCT_STOCK_PREFIX + productId;
-            redisTemplate.opsForValue().increment(stockKey, quantity);
+            // 更新Redis库存（未预热时不写入，避免生成错误的库存值）
+            redisStockManager.restore(productId, quantity);
             
-            // 删除商品缓存
-            String productKey = RedisKeyConstant.PRODUCT_INFO_PREFIX + productId;
-            redisTemplate.delete(productKey);
+            // 失效商品缓存（L2 + 各实例L1）
+            productCache.evict(Collections.singletonList(productId));
+
+            if (stockQuotaManager.isQuotaMode(productId)) {
+                stockQuotaManager.onRestock(productId);
+            }
             
             log.info("增加库存成功：商品ID={}, 数量={}", productId, quantity);
             return true;
@@ -142,10 +257,220 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public boolean checkStock(Long productId, Integer quantity) {
+        if (segmentStockManager.isSegmented(productId)) {
+            return segmentStockManager.getAvailableStock(productId) >= quantity;
+        }
+        if (stockQuotaManager.isQuotaMode(productId) && stockQuotaManager.isSoldOut(productId)) {
+            return false;
+        }
         Product product = getProductById(productId);
         if (product == null) {
             throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
         }
         return product.getStock() >= quantity;
     }
+
+    @Override
+    public ProductSnapshotDTO reserveStock(Long productId, Integer quantity) {
+        // 商品信息走缓存，扣减库存后缓存会失效，因此先读取快照
+        Product product = getProductById(productId);
+        if (product == null) {
+            throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+        }
+        if (product.getStatus() == null || product.getStatus() != 1) {
+            throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST.getCode(), "商品已下架");
+        }
+
+        // 扣减库存（库存校验在扣减中原子完成）
+        deductStock(productId, quantity);
+
+        return new ProductSnapshotDTO(product.getId(), product.getName(), product.getPrice());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean reserveStockBatch(List<StockLineDTO> lines) {
+        List<StockLineDTO> mergedLines = mergeLines(lines);
+        List<StockLineDTO> plainLines = new ArrayList<>(mergedLines.size());
+        List<StockLineDTO> segmentLines = new ArrayList<>();
+        splitLines(mergedLines, plainLines, segmentLines);
+
+        // 本地额度商品与单个扣减一致，从实例额度扣减（已售数量由额度管理器回写数据库），不直接扣共享库存
+        List<StockLineDTO> quotaLines = new ArrayList<>();
+        for (Iterator<StockLineDTO> iterator = plainLines.iterator(); iterator.hasNext(); ) {
+            StockLineDTO line = iterator.next();
+            if (stockQuotaManager.isQuotaMode(line.getProductId())) {
+                quotaLines.add(line);
+                iterator.remove();
+            }
+        }
+
+        // 依次扣减本地额度、普通商品、分段库存，任一失败撤销已扣减的部分（数据库随事务回滚）
+        List<StockLineDTO> quotaDeducted = new ArrayList<>(quotaLines.size());
+        List<SegmentDeduction> deductions = new ArrayList<>(segmentLines.size());
+        boolean plainReserved = false;
+        try {
+            for (StockLineDTO line : quotaLines) {
+                if (!stockQuotaManager.deduct(line.getProductId(), line.getQuantity())) {
+                    throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH.getCode(),
+                            "商品库存不足：" + line.getProductId());
+                }
+                quotaDeducted.add(line);
+            }
+            if (!plainLines.isEmpty()) {
+                reservePlainLines(plainLines);
+                plainReserved = true;
+            }
+            // 热点商品逐个走分段库存
+            for (StockLineDTO line : segmentLines) {
+                deductions.add(segmentStockManager.deduct(line.getProductId(), line.getQuantity()));
+            }
+        } catch (RuntimeException e) {
+            deductions.forEach(segmentStockManager::compensate);
+            if (plainReserved) {
+                redisStockManager.restoreBatch(plainLines);
+            }
+            for (StockLineDTO line : quotaDeducted) {
+                stockQuotaManager.compensate(line.getProductId(), line.getQuantity());
+            }
+            throw e;
+        }
+
+        log.info("批量预占库存成功：{}", mergedLines);
+        return true;
+    }
+
+    /**
+     * 普通商品批量预占：Redis一次脚本 + 数据库一条语句
+     */
+    private void reservePlainLines(List<StockLineDTO> mergedLines) {
+        // 1. Redis批量原子检查并扣减（一次往返）
+        long code = redisStockManager.deductBatch(mergedLines);
+        if (code < 0) {
+            // Redis库存未预热，从数据库加载后重试
+            List<Product> products = productMapper.selectBatchIds(collectProductIds(mergedLines));
+            if (products.size() != mergedLines.size()) {
+                throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+            }
+            for (Product product : products) {
+                redisStockManager.initStock(product.getId(), product.getStock());
+            }
+            code = redisStockManager.deductBatch(mergedLines);
+        }
+        if (code != 0) {
+            Long productId = mergedLines.get((int) Math.abs(code) - 1).getProductId();
+            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH.getCode(),
+                    "商品库存不足：" + productId);
+        }
+
+        // 2. 数据库一条语句批量扣减，影响行数不足说明有商品库存不足，整体回滚
+        int result = productMapper.deductStockBatch(mergedLines);
+        if (result != mergedLines.size()) {
+            redisStockManager.restoreBatch(mergedLines);
+            throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+        }
+
+        // 3. 失效商品缓存
+        productCache.evict(collectProductIds(mergedLines));
+    }
+
+    @Override
+    public boolean releaseStockBatch(List<StockLineDTO> lines, String requestId) {
+        List<StockLineDTO> mergedLines = mergeLines(lines);
+
+        // 同一请求ID只归还一次（调用方失败重试时不会重复加库存）
+        String requestKey = null;
+        if (requestId != null) {
+            requestKey = RedisKeyConstant.PRODUCT_STOCK_RELEASE_PREFIX + requestId;
+            Boolean first = redisTemplate.opsForValue().setIfAbsent(requestKey, 1, 1, TimeUnit.DAYS);
+            if (!Boolean.TRUE.equals(first)) {
+                log.info("库存归还请求已处理，忽略：{}", requestId);
+                return true;
+            }
+        }
+
+        List<StockLineDTO> plainLines = new ArrayList<>(mergedLines.size());
+        List<StockLineDTO> segmentLines = new ArrayList<>();
+        splitLines(mergedLines, plainLines, segmentLines);
+
+        boolean released = false;
+        try {
+            if (!plainLines.isEmpty() && productMapper.addStockBatch(plainLines) > 0) {
+                redisStockManager.restoreBatch(plainLines);
+                productCache.evict(collectProductIds(plainLines));
+                for (StockLineDTO line : plainLines) {
+                    if (stockQuotaManager.isQuotaMode(line.getProductId())) {
+                        stockQuotaManager.onRestock(line.getProductId());
+                    }
+                }
+                released = true;
+            }
+            for (StockLineDTO line : segmentLines) {
+                segmentStockManager.add(line.getProductId(), line.getQuantity());
+                released = true;
+            }
+        } catch (RuntimeException e) {
+            // 归还失败时清除请求标记，允许调用方重试
+            if (requestKey != null) {
+                redisTemplate.delete(requestKey);
+            }
+            throw e;
+        }
+
+        if (released) {
+            log.info("批量归还库存成功：{}", mergedLines);
+        }
+        return released;
+    }
+
+    /**
+     * 按是否启用分段库存拆分库存行
+     */
+    private void splitLines(List<StockLineDTO> lines, List<StockLineDTO> plainLines, List<StockLineDTO> segmentLines) {
+        for (StockLineDTO line : lines) {
+            if (segmentStockManager.isSegmented(line.getProductId())) {
+                segmentLines.add(line);
+            } else {
+                plainLines.add(line);
+            }
+        }
+    }
+
+    private ProductBriefDTO toBrief(Product product) {
+        ProductBriefDTO brief = new ProductBriefDTO();
+        brief.setId(product.getId());
+        brief.setName(product.getName());
+        brief.setPrice(product.getPrice());
+        brief.setStock(product.getStock());
+        brief.setMainImage(product.getMainImage());
+        brief.setStatus(product.getStatus());
+        return brief;
+    }
+
+    /**
+     * 合并同一商品的库存行，并按商品ID排序（固定加锁顺序，避免死锁）
+     */
+    private List<StockLineDTO> mergeLines(List<StockLineDTO> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR);
+        }
+        Map<Long, Integer> merged = new TreeMap<>();
+        for (StockLineDTO line : lines) {
+            if (line.getProductId() == null || line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new BusinessException(ResultCode.PARAM_ERROR);
+            }
+            merged.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        List<StockLineDTO> result = new ArrayList<>(merged.size());
+        merged.forEach((productId, quantity) -> result.add(new StockLineDTO(productId, quantity)));
+        return result;
+    }
+
+    private List<Long> collectProductIds(List<StockLineDTO> lines) {
+        List<Long> productIds = new ArrayList<>(lines.size());
+        for (StockLineDTO line : lines) {
+            productIds.add(line.getProductId());
+        }
+        return productIds;
+    }
 }
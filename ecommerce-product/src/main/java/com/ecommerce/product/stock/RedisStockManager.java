@@ -0,0 +1,218 @@
+package com.ecommerce.product.stock;
+
+import cn.hutool.core.util.StrUtil;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.dto.StockLineDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Redis库存管理（Lua脚本原子扣减）
+ *
+ * 检查库存与扣减在一次脚本调用中完成，不再需要分布式锁
+ */
+@Slf4j
+@Component
+public class RedisStockManager {
+
+    /**
+     * Redis库存尚未初始化
+     */
+    public static final long STOCK_UNINITIALIZED = -1L;
+
+    /**
+     * Redis库存不足
+     */
+    public static final long STOCK_NOT_ENOUGH = -2L;
+
+    /**
+     * 检查并扣减库存
+     * 返回值：-1 库存未初始化，-2 库存不足，>=0 扣减后剩余库存
+     */
+    static final DefaultRedisScript<Long> DEDUCT_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('get', KEYS[1]) " +
+            "if not stock then " +
+            "    return -1 " +
+            "end " +
+            "local quantity = tonumber(ARGV[1]) " +
+            "if tonumber(stock) < quantity then " +
+            "    return -2 " +
+            "end " +
+            "return redis.call('decrby', KEYS[1], quantity)",
+            Long.class);
+
+    /**
+     * 归还库存（仅在库存Key存在时累加，避免生成错误的库存值）
+     */
+    static final DefaultRedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then " +
+            "    return redis.call('incrby', KEYS[1], tonumber(ARGV[1])) " +
+            "else " +
+            "    return -1 " +
+            "end",
+            Long.class);
+
+    /**
+     * 尽量扣减库存（不足时扣光剩余）
+     * 返回值：-1 库存未初始化，>=0 实际扣减数量
+     */
+    static final DefaultRedisScript<Long> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('get', KEYS[1]) " +
+            "if not stock then " +
+            "    return -1 " +
+            "end " +
+            "local take = math.min(tonumber(stock), tonumber(ARGV[1])) " +
+            "if take > 0 then " +
+            "    redis.call('decrby', KEYS[1], take) " +
+            "else " +
+            "    take = 0 " +
+            "end " +
+            "return take",
+            Long.class);
+
+    /**
+     * 批量检查并扣减库存（全部满足才扣减）
+     * 返回值：0 成功，-i 第i个库存未初始化，i 第i个库存不足
+     */
+    private static final DefaultRedisScript<Long> DEDUCT_BATCH_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do " +
+            "    local stock = redis.call('get', KEYS[i]) " +
+            "    if not stock then " +
+            "        return -i " +
+            "    end " +
+            "    if tonumber(stock) < tonumber(ARGV[i]) then " +
+            "        return i " +
+            "    end " +
+            "end " +
+            "for i = 1, #KEYS do " +
+            "    redis.call('decrby', KEYS[i], tonumber(ARGV[i])) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 批量归还库存（库存Key不存在时忽略）
+     */
+    private static final DefaultRedisScript<Long> RESTORE_BATCH_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do " +
+            "    if redis.call('exists', KEYS[i]) == 1 then " +
+            "        redis.call('incrby', KEYS[i], tonumber(ARGV[i])) " +
+            "    end " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 默认扣减模式：lock-分布式锁 lua-Lua脚本原子扣减
+     */
+    @Value("${product.stock.deduct-mode:lock}")
+    private String deductMode;
+
+    /**
+     * 单独启用Lua模式的商品ID（逗号分隔）
+     */
+    @Value("${product.stock.lua-product-ids:}")
+    private String luaProductIds;
+
+    private Set<Long> luaProductIdSet = Collections.emptySet();
+
+    @PostConstruct
+    public void init() {
+        Set<Long> ids = new HashSet<>();
+        for (String id : StrUtil.split(luaProductIds, ',', true, true)) {
+            ids.add(Long.valueOf(id));
+        }
+        luaProductIdSet = ids;
+        log.info("库存扣减模式：default={}, luaProductIds={}", deductMode, luaProductIdSet);
+    }
+
+    /**
+     * 商品是否使用Lua无锁扣减
+     */
+    public boolean isLuaMode(Long productId) {
+        return "lua".equalsIgnoreCase(deductMode) || luaProductIdSet.contains(productId);
+    }
+
+    /**
+     * 原子检查并扣减库存（一次Redis往返）
+     * @return -1 库存未初始化，-2 库存不足，>=0 扣减后剩余库存
+     */
+    public long deduct(Long productId, Integer quantity) {
+        Long result = redisTemplate.execute(DEDUCT_SCRIPT,
+                Collections.singletonList(RedisKeyConstant.buildStockKey(productId)), quantity);
+        return result == null ? STOCK_UNINITIALIZED : result;
+    }
+
+    /**
+     * 尽量扣减库存（不足时扣光剩余）
+     * @return -1 库存未初始化，>=0 实际扣减数量
+     */
+    public long take(Long productId, int quantity) {
+        Long result = redisTemplate.execute(TAKE_SCRIPT,
+                Collections.singletonList(RedisKeyConstant.buildStockKey(productId)), quantity);
+        return result == null ? STOCK_UNINITIALIZED : result;
+    }
+
+    /**
+     * 初始化Redis库存（仅在不存在时写入）
+     */
+    public boolean initStock(Long productId, Integer stock) {
+        Boolean success = redisTemplate.opsForValue()
+                .setIfAbsent(RedisKeyConstant.buildStockKey(productId), stock);
+        return Boolean.TRUE.equals(success);
+    }
+
+    /**
+     * 归还库存（库存Key不存在时忽略）
+     */
+    public void restore(Long productId, Integer quantity) {
+        redisTemplate.execute(RESTORE_SCRIPT,
+                Collections.singletonList(RedisKeyConstant.buildStockKey(productId)), quantity);
+    }
+
+    /**
+     * 批量原子检查并扣减库存（一次Redis往返，全部满足才扣减）
+     * @return 0 成功，-i 第i行库存未初始化，i 第i行库存不足
+     */
+    public long deductBatch(List<StockLineDTO> lines) {
+        Long result = redisTemplate.execute(DEDUCT_BATCH_SCRIPT, buildStockKeys(lines), buildQuantities(lines));
+        return result == null ? STOCK_UNINITIALIZED : result;
+    }
+
+    /**
+     * 批量归还库存（库存Key不存在时忽略）
+     */
+    public void restoreBatch(List<StockLineDTO> lines) {
+        redisTemplate.execute(RESTORE_BATCH_SCRIPT, buildStockKeys(lines), buildQuantities(lines));
+    }
+
+    private List<String> buildStockKeys(List<StockLineDTO> lines) {
+        List<String> keys = new ArrayList<>(lines.size());
+        for (StockLineDTO line : lines) {
+            keys.add(RedisKeyConstant.buildStockKey(line.getProductId()));
+        }
+        return keys;
+    }
+
+    private Object[] buildQuantities(List<StockLineDTO> lines) {
+        Object[] quantities = new Object[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            quantities[i] = lines.get(i).getQuantity();
+        }
+        return quantities;
+    }
+}
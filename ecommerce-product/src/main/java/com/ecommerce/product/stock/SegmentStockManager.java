@@ -0,0 +1,399 @@
+package com.ecommerce.product.stock;
+
+import cn.hutool.core.util.StrUtil;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.common.utils.RedisLockUtil;
+import com.ecommerce.product.cache.ProductCache;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.entity.ProductStockSegment;
+import com.ecommerce.product.mapper.ProductMapper;
+import com.ecommerce.product.mapper.ProductStockSegmentMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 热点商品分段库存管理
+ *
+ * 热点商品的库存拆分到N个分段（Redis Key + tb_product_stock_segment行），扣减随机选择起始分段，
+ * 分段不足时依次尝试兄弟分段，仍不足再跨分段凑齐；Redis热Key与数据库行锁都被分散到N份。
+ * 分段表是热点商品库存的唯一依据，后台任务定期在分段之间再平衡，并把汇总值回写商品表。
+ */
+@Slf4j
+@Component
+public class SegmentStockManager {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductStockSegmentMapper segmentMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisLockUtil redisLockUtil;
+
+    @Autowired
+    private ProductCache productCache;
+
+    /**
+     * 启用分段库存的热点商品ID（逗号分隔）
+     */
+    @Value("${product.stock.segment.product-ids:}")
+    private String segmentProductIds;
+
+    /**
+     * 新建分段时的分段数（已分段的商品以数据库中的分段为准）
+     */
+    @Value("${product.stock.segment.count:8}")
+    private int segmentCount;
+
+    /**
+     * 分段库存低于平均值的该比例时触发再平衡
+     */
+    @Value("${product.stock.segment.rebalance-ratio:0.25}")
+    private double rebalanceRatio;
+
+    private Set<Long> segmentProductIdSet = Collections.emptySet();
+
+    /**
+     * 商品分段数缓存
+     */
+    private final Map<Long, Integer> segmentCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Set<Long> ids = new HashSet<>();
+        for (String id : StrUtil.split(segmentProductIds, ',', true, true)) {
+            ids.add(Long.valueOf(id));
+        }
+        segmentProductIdSet = ids;
+        log.info("分段库存商品：{}，分段数={}", segmentProductIdSet, segmentCount);
+    }
+
+    /**
+     * 商品是否使用分段库存
+     */
+    public boolean isSegmented(Long productId) {
+        return segmentProductIdSet.contains(productId);
+    }
+
+    /**
+     * 扣减分段库存：Redis按分段预扣，再扣减对应的分段行（加入调用方事务）
+     * 失败时已归还Redis预扣并抛出异常
+     */
+    public SegmentDeduction deduct(Long productId, int quantity) {
+        int count = getSegmentCount(productId);
+        int start = ThreadLocalRandom.current().nextInt(count);
+        SegmentDeduction deduction = new SegmentDeduction(productId);
+
+        // 1. 单个分段足够则只扣一个分段，不足时依次尝试兄弟分段
+        for (int i = 0; i < count && deduction.isEmpty(); i++) {
+            int segmentNo = (start + i) % count;
+            if (executeScript(RedisStockManager.DEDUCT_SCRIPT, productId, segmentNo, quantity) >= 0) {
+                deduction.add(segmentNo, quantity);
+            }
+        }
+
+        // 2. 没有单个分段足够，跨分段凑齐；总量不足则全部归还
+        if (deduction.isEmpty()) {
+            int remaining = quantity;
+            for (int i = 0; i < count && remaining > 0; i++) {
+                int segmentNo = (start + i) % count;
+                long taken = executeScript(RedisStockManager.TAKE_SCRIPT, productId, segmentNo, remaining);
+                if (taken > 0) {
+                    deduction.add(segmentNo, (int) taken);
+                    remaining -= (int) taken;
+                }
+            }
+            if (remaining > 0) {
+                compensate(deduction);
+                throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+            }
+        }
+
+        // 3. 扣减数据库分段行（乐观锁兜底）
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<Integer, Integer> entry : deduction.allocations.entrySet()) {
+                    if (segmentMapper.deductStock(productId, entry.getKey(), entry.getValue()) <= 0) {
+                        throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            compensate(deduction);
+            throw e;
+        }
+
+        log.debug("扣减分段库存：商品ID={}, 数量={}, 分段={}", productId, quantity, deduction.allocations);
+        return deduction;
+    }
+
+    /**
+     * 归还一次扣减在Redis中预扣的库存（数据库部分由事务回滚）
+     */
+    public void compensate(SegmentDeduction deduction) {
+        for (Map.Entry<Integer, Integer> entry : deduction.allocations.entrySet()) {
+            redisTemplate.execute(RedisStockManager.RESTORE_SCRIPT,
+                    Collections.singletonList(RedisKeyConstant.buildStockSegmentKey(deduction.productId, entry.getKey())),
+                    entry.getValue());
+        }
+    }
+
+    /**
+     * 增加分段库存（随机落到一个分段）
+     */
+    public void add(Long productId, int quantity) {
+        int segmentNo = ThreadLocalRandom.current().nextInt(getSegmentCount(productId));
+        transactionTemplate.executeWithoutResult(status -> segmentMapper.addStock(productId, segmentNo, quantity));
+        // Key不存在时忽略，下次加载以数据库为准
+        redisTemplate.execute(RedisStockManager.RESTORE_SCRIPT,
+                Collections.singletonList(RedisKeyConstant.buildStockSegmentKey(productId, segmentNo)), quantity);
+    }
+
+    /**
+     * 当前可用库存（各分段之和，精确值）
+     */
+    public int getAvailableStock(Long productId) {
+        List<Object> values = redisTemplate.opsForValue().multiGet(buildSegmentKeys(productId, getSegmentCount(productId)));
+        if (values == null || values.contains(null)) {
+            values = redisTemplate.opsForValue().multiGet(buildSegmentKeys(productId, initSegments(productId)));
+        }
+        int total = 0;
+        for (Object value : values) {
+            total += value == null ? 0 : ((Number) value).intValue();
+        }
+        return total;
+    }
+
+    /**
+     * 后台再平衡：把库存从富余分段搬到接近售罄的分段，并将汇总库存回写商品表；
+     * 已不在热点列表中的商品回收分段库存
+     */
+    @Scheduled(fixedDelayString = "${product.stock.segment.rebalance-interval:5000}")
+    public void rebalance() {
+        Set<Long> productIds = new HashSet<>(segmentMapper.selectSegmentedProductIds());
+        for (Long productId : productIds) {
+            String lockKey = RedisKeyConstant.LOCK_STOCK_SEGMENT_PREFIX + productId;
+            String lockValue = redisLockUtil.tryLock(lockKey, 30);
+            if (lockValue == null) {
+                continue;
+            }
+            try {
+                if (isSegmented(productId)) {
+                    rebalanceProduct(productId);
+                } else {
+                    retireSegments(productId);
+                }
+            } catch (Exception e) {
+                log.error("分段库存再平衡失败：商品ID={}", productId, e);
+            } finally {
+                redisLockUtil.unlock(lockKey, lockValue);
+            }
+        }
+    }
+
+    private void rebalanceProduct(Long productId) {
+        List<ProductStockSegment> segments = segmentMapper.selectByProductId(productId);
+        int count = segments.size();
+        List<Object> values = redisTemplate.opsForValue().multiGet(buildSegmentKeys(productId, count));
+        if (values == null || values.contains(null)) {
+            // Redis分段未加载，本轮只加载不搬运
+            initSegments(productId);
+            return;
+        }
+
+        int[] stocks = new int[count];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            stocks[i] = ((Number) values.get(i)).intValue();
+            total += stocks[i];
+        }
+        int lowWatermark = (int) (total / count * rebalanceRatio);
+
+        for (int round = 0; round < count; round++) {
+            int poorest = 0;
+            int richest = 0;
+            for (int i = 1; i < count; i++) {
+                if (stocks[i] < stocks[poorest]) {
+                    poorest = i;
+                }
+                if (stocks[i] > stocks[richest]) {
+                    richest = i;
+                }
+            }
+            if (stocks[poorest] >= lowWatermark || stocks[richest] - stocks[poorest] <= 1) {
+                break;
+            }
+            int moved = moveStock(productId, richest, poorest, (stocks[richest] - stocks[poorest]) / 2);
+            if (moved <= 0) {
+                break;
+            }
+            stocks[richest] -= moved;
+            stocks[poorest] += moved;
+        }
+
+        // 汇总回写商品表，供列表展示与非热点路径读取
+        productMapper.syncStock(productId, segmentMapper.sumStock(productId));
+    }
+
+    /**
+     * 在两个分段间搬运库存：先从源分段取出（期间这部分库存暂不可售，不会超卖），数据库搬运成功后再放入目标分段
+     */
+    private int moveStock(Long productId, int from, int to, int quantity) {
+        long taken = executeScript(RedisStockManager.TAKE_SCRIPT, productId, from, quantity);
+        if (taken <= 0) {
+            return 0;
+        }
+        int moved = (int) taken;
+        String fromKey = RedisKeyConstant.buildStockSegmentKey(productId, from);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (segmentMapper.deductStock(productId, from, moved) <= 0) {
+                    throw new BusinessException(ResultCode.PRODUCT_STOCK_NOT_ENOUGH);
+                }
+                segmentMapper.addStock(productId, to, moved);
+            });
+        } catch (RuntimeException e) {
+            redisTemplate.execute(RedisStockManager.RESTORE_SCRIPT, Collections.singletonList(fromKey), moved);
+            log.warn("分段库存搬运失败：商品ID={}, {}->{}, 数量={}", productId, from, to, moved);
+            return 0;
+        }
+        redisTemplate.execute(RedisStockManager.RESTORE_SCRIPT,
+                Collections.singletonList(RedisKeyConstant.buildStockSegmentKey(productId, to)), moved);
+        return moved;
+    }
+
+    /**
+     * 回收分段：汇总回写商品表后删除分段，商品回到普通库存路径
+     */
+    private void retireSegments(Long productId) {
+        int count = segmentMapper.selectByProductId(productId).size();
+        transactionTemplate.executeWithoutResult(status -> {
+            productMapper.selectByIdForUpdate(productId);
+            productMapper.syncStock(productId, segmentMapper.sumStock(productId));
+            segmentMapper.deleteByProductId(productId);
+        });
+        List<String> keys = buildSegmentKeys(productId, count);
+        keys.add(RedisKeyConstant.buildStockKey(productId));
+        redisTemplate.delete(keys);
+        productCache.evict(Collections.singletonList(productId));
+        segmentCounts.remove(productId);
+        log.info("回收分段库存：商品ID={}", productId);
+    }
+
+    private int getSegmentCount(Long productId) {
+        Integer count = segmentCounts.get(productId);
+        return count != null ? count : initSegments(productId);
+    }
+
+    /**
+     * 初始化分段：数据库没有分段时在商品行锁下按当前库存拆分，然后把分段加载到Redis（仅在不存在时写入）
+     * @return 分段数
+     */
+    private int initSegments(Long productId) {
+        List<ProductStockSegment> segments = segmentMapper.selectByProductId(productId);
+        if (segments.isEmpty()) {
+            segments = transactionTemplate.execute(status -> {
+                Product product = productMapper.selectByIdForUpdate(productId);
+                if (product == null) {
+                    throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+                }
+                List<ProductStockSegment> existing = segmentMapper.selectByProductId(productId);
+                if (!existing.isEmpty()) {
+                    return existing;
+                }
+                List<ProductStockSegment> created = splitStock(productId, product.getStock());
+                segmentMapper.insertIgnoreBatch(created);
+                return created;
+            });
+            // 普通路径的库存Key不再使用，删除以免回收分段后读到旧值
+            redisTemplate.delete(RedisKeyConstant.buildStockKey(productId));
+            log.info("初始化分段库存：商品ID={}, 分段数={}", productId, segments.size());
+        }
+
+        for (ProductStockSegment segment : segments) {
+            redisTemplate.opsForValue().setIfAbsent(
+                    RedisKeyConstant.buildStockSegmentKey(productId, segment.getSegmentNo()), segment.getStock());
+        }
+        segmentCounts.put(productId, segments.size());
+        return segments.size();
+    }
+
+    private List<ProductStockSegment> splitStock(Long productId, int stock) {
+        List<ProductStockSegment> segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            ProductStockSegment segment = new ProductStockSegment();
+            segment.setProductId(productId);
+            segment.setSegmentNo(i);
+            segment.setStock(stock / segmentCount + (i < stock % segmentCount ? 1 : 0));
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    /**
+     * 对单个分段执行脚本，分段未加载时先初始化再重试
+     */
+    private long executeScript(DefaultRedisScript<Long> script, Long productId, int segmentNo, int quantity) {
+        List<String> keys = Collections.singletonList(RedisKeyConstant.buildStockSegmentKey(productId, segmentNo));
+        Long result = redisTemplate.execute(script, keys, quantity);
+        if (result == null || result == RedisStockManager.STOCK_UNINITIALIZED) {
+            initSegments(productId);
+            result = redisTemplate.execute(script, keys, quantity);
+        }
+        return result == null ? RedisStockManager.STOCK_UNINITIALIZED : result;
+    }
+
+    private List<String> buildSegmentKeys(Long productId, int count) {
+        List<String> keys = new ArrayList<>(count + 2);
+        for (int i = 0; i < count; i++) {
+            keys.add(RedisKeyConstant.buildStockSegmentKey(productId, i));
+        }
+        return keys;
+    }
+
+    /**
+     * 一次分段扣减的明细（分段编号 -> 数量）
+     */
+    public static class SegmentDeduction {
+        private final Long productId;
+        private final Map<Integer, Integer> allocations = new LinkedHashMap<>();
+
+        SegmentDeduction(Long productId) {
+            this.productId = productId;
+        }
+
+        void add(int segmentNo, int quantity) {
+            allocations.merge(segmentNo, quantity, Integer::sum);
+        }
+
+        boolean isEmpty() {
+            return allocations.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.ecommerce.product.stock;
+
+import cn.hutool.core.util.StrUtil;
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.common.exception.ResultCode;
+import com.ecommerce.product.cache.ProductCache;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.mapper.ProductMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 实例级库存额度（本地预分配）
+ *
+ * 每个商品服务实例从Redis共享库存中一次租用一批额度（如50件），扣减在本地原子计数器上完成，
+ * 额度偏低时异步续租。已售数量累加在本地计数器（不访问Redis），定期、每次续租前和归还额度时回写数据库，
+ * 实例宕机最多丢失约一个额度的未回写数量（共享库存已扣减，不会超卖）；回写失败按指数退避重试，
+ * 数据库库存不足时按已售数量对账到0。额度过期或实例停机时归还未用额度。
+ * 某实例发现共享库存已耗尽时通过Redis频道广播售罄，其他实例用完本地额度后直接拒绝，不再访问Redis；
+ * 只有真正补货（addStock/归还库存）才广播补货，额度归还不广播，售罄标记超过额度有效期后再探测一次共享库存，
+ * 以便取回其他实例归还的额度。
+ */
+@Slf4j
+@Component
+public class StockQuotaManager implements MessageListener {
+
+    private static final String SOLD_OUT = "soldout:";
+
+    private static final String RESTOCK = "restock:";
+
+    @Autowired
+    private RedisStockManager redisStockManager;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 启用本地额度的商品ID（逗号分隔）
+     */
+    @Value("${product.stock.quota.product-ids:}")
+    private String quotaProductIds;
+
+    /**
+     * 每次租用的额度
+     */
+    @Value("${product.stock.quota.lease-size:50}")
+    private int leaseSize;
+
+    /**
+     * 剩余额度低于该值时异步续租
+     */
+    @Value("${product.stock.quota.refill-threshold:10}")
+    private int refillThreshold;
+
+    /**
+     * 额度有效期（毫秒），过期未用完的额度归还共享库存
+     */
+    @Value("${product.stock.quota.lease-ttl:60000}")
+    private long leaseTtl;
+
+    /**
+     * 回写失败的最大重试间隔（毫秒）
+     */
+    @Value("${product.stock.quota.flush-max-backoff:30000}")
+    private long flushMaxBackoff;
+
+    private Set<Long> quotaProductIdSet = Collections.emptySet();
+
+    private final Map<Long, StockLease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 回写失败的商品：连续失败次数与下次重试时间
+     */
+    private final Map<Long, long[]> flushFailures = new ConcurrentHashMap<>();
+
+    private ExecutorService refillExecutor;
+
+    @PostConstruct
+    public void init() {
+        Set<Long> ids = new HashSet<>();
+        for (String id : StrUtil.split(quotaProductIds, ',', true, true)) {
+            ids.add(Long.valueOf(id));
+        }
+        quotaProductIdSet = ids;
+        refillExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "stock-quota-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("本地库存额度商品：{}，每次租用={}", quotaProductIdSet, leaseSize);
+    }
+
+    /**
+     * 停机时归还全部未用额度，并回写已售数量（忽略退避）
+     */
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdown();
+        leases.forEach((productId, lease) -> {
+            returnLease(productId, lease);
+            flush(productId, lease, true);
+        });
+    }
+
+    /**
+     * 商品是否使用本地额度
+     */
+    public boolean isQuotaMode(Long productId) {
+        return quotaProductIdSet.contains(productId);
+    }
+
+    /**
+     * 从本地额度扣减库存（纯内存操作，额度不足时同步续租一次）
+     * @return 是否扣减成功
+     */
+    public boolean deduct(Long productId, int quantity) {
+        StockLease lease = leases.computeIfAbsent(productId, id -> new StockLease());
+        while (true) {
+            if (lease.tryAcquire(quantity)) {
+                lease.sold.add(quantity);
+                if (lease.remaining.get() < refillThreshold && !lease.isSoldOut(leaseTtl)) {
+                    refillAsync(productId, lease);
+                }
+                return true;
+            }
+            // 已收到售罄广播：本地额度用完即拒绝，不再访问Redis
+            if (lease.isSoldOut(leaseTtl) || refill(productId, lease, Math.max(leaseSize, quantity)) <= 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 撤销一次本地额度扣减（批量预占中其他商品失败时调用）：额度退回本地，扣减已售数量
+     */
+    public void compensate(Long productId, int quantity) {
+        StockLease lease = leases.computeIfAbsent(productId, id -> new StockLease());
+        lease.sold.add(-quantity);
+        lease.remaining.addAndGet(quantity);
+    }
+
+    /**
+     * 是否已售罄（共享库存耗尽且本地额度用完）
+     */
+    public boolean isSoldOut(Long productId) {
+        StockLease lease = leases.get(productId);
+        return lease != null && lease.isSoldOut(leaseTtl) && lease.remaining.get() <= 0;
+    }
+
+    /**
+     * 补货后广播，各实例恢复续租
+     */
+    public void onRestock(Long productId) {
+        stringRedisTemplate.convertAndSend(RedisKeyConstant.PRODUCT_STOCK_CHANNEL, RESTOCK + productId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        boolean soldOut = body.startsWith(SOLD_OUT);
+        Long productId = Long.valueOf(body.substring(soldOut ? SOLD_OUT.length() : RESTOCK.length()));
+        StockLease lease = leases.get(productId);
+        if (lease != null) {
+            lease.soldOutAt = soldOut ? System.currentTimeMillis() : 0;
+        }
+        log.info("收到库存广播：{}", body);
+    }
+
+    /**
+     * 定期回写本实例的已售数量（每个商品一条UPDATE）
+     */
+    @Scheduled(fixedDelayString = "${product.stock.quota.flush-interval:200}")
+    public void flushSold() {
+        leases.forEach((productId, lease) -> flush(productId, lease, false));
+    }
+
+    /**
+     * 回写上次回写之后的已售数量（撤销多于售出时归还数据库库存），失败时按指数退避，未回写数量留在本地下次重试
+     * @param force 是否忽略退避（续租、归还额度和停机时）
+     */
+    private void flush(Long productId, StockLease lease, boolean force) {
+        synchronized (lease.flushLock) {
+            long now = System.currentTimeMillis();
+            long[] failure = flushFailures.get(productId);
+            if (!force && failure != null && failure[1] > now) {
+                return;
+            }
+            // 不重置计数器：并发扣减只会晚一次回写，不会丢失
+            long sold = lease.sold.sum() - lease.flushed;
+            if (sold == 0) {
+                return;
+            }
+            try {
+                flushProduct(productId, sold);
+                lease.flushed += sold;
+                flushFailures.remove(productId);
+            } catch (Exception e) {
+                long failures = failure == null ? 1 : failure[0] + 1;
+                long backoff = Math.min(flushMaxBackoff, 200L << Math.min(failures, 20));
+                flushFailures.put(productId, new long[]{failures, now + backoff});
+                // 只在首次失败时记录ERROR，避免每个周期刷屏
+                if (failures == 1) {
+                    log.error("回写已售库存失败，{}ms后重试：商品ID={}, 数量={}", backoff, productId, sold, e);
+                } else {
+                    log.warn("回写已售库存第{}次失败，{}ms后重试：商品ID={}, 数量={}，{}",
+                            failures, backoff, productId, sold, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 回写单个商品：数据库库存不足时（人工调整库存等）对账扣减到0，商品已删除时丢弃
+     */
+    private void flushProduct(Long productId, long sold) {
+        if (sold < 0) {
+            productMapper.addStock(productId, (int) -sold);
+        } else if (productMapper.deductStock(productId, (int) sold) <= 0) {
+            if (productMapper.settleSold(productId, (int) sold) > 0) {
+                log.warn("数据库库存少于已售数量，已对账扣减到0：商品ID={}, 已售={}", productId, sold);
+            } else {
+                log.error("回写已售库存时商品不存在，丢弃：商品ID={}, 数量={}", productId, sold);
+            }
+        }
+        productCache.evict(Collections.singletonList(productId));
+    }
+
+    /**
+     * 归还过期额度，并回写该额度期间的已售数量
+     */
+    @Scheduled(fixedDelayString = "${product.stock.quota.expire-check-interval:1000}")
+    public void expireLeases() {
+        long now = System.currentTimeMillis();
+        leases.forEach((productId, lease) -> {
+            if (lease.expireAt > 0 && lease.expireAt < now) {
+                returnLease(productId, lease);
+                flush(productId, lease, true);
+            }
+        });
+    }
+
+    private void refillAsync(Long productId, StockLease lease) {
+        if (lease.refilling.compareAndSet(false, true)) {
+            try {
+                refillExecutor.execute(() -> {
+                    try {
+                        // 每租一次额度回写一次，实例宕机时未回写的已售数量不超过约一个额度
+                        flush(productId, lease, true);
+                        refill(productId, lease, leaseSize);
+                    } catch (Exception e) {
+                        log.warn("异步续租库存额度失败：商品ID={}", productId, e);
+                    } finally {
+                        lease.refilling.set(false);
+                    }
+                });
+            } catch (Exception e) {
+                lease.refilling.set(false);
+            }
+        }
+    }
+
+    /**
+     * 从共享库存租用额度；共享库存不足时广播售罄
+     * @return 实际租到的数量
+     */
+    private long refill(Long productId, StockLease lease, int amount) {
+        synchronized (lease) {
+            long taken = redisStockManager.take(productId, amount);
+            if (taken == RedisStockManager.STOCK_UNINITIALIZED) {
+                Product product = productMapper.selectById(productId);
+                if (product == null) {
+                    throw new BusinessException(ResultCode.PRODUCT_NOT_EXIST);
+                }
+                redisStockManager.initStock(productId, product.getStock());
+                taken = redisStockManager.take(productId, amount);
+            }
+            if (taken > 0) {
+                lease.remaining.addAndGet((int) taken);
+                lease.expireAt = System.currentTimeMillis() + leaseTtl;
+            }
+            if (taken < amount) {
+                lease.soldOutAt = System.currentTimeMillis();
+                stringRedisTemplate.convertAndSend(RedisKeyConstant.PRODUCT_STOCK_CHANNEL, SOLD_OUT + productId);
+            }
+            log.debug("租用库存额度：商品ID={}, 申请={}, 实际={}", productId, amount, taken);
+            return Math.max(taken, 0);
+        }
+    }
+
+    /**
+     * 归还未用额度到共享库存（不广播补货：总库存没有增加，售罄的实例在售罄标记过期后自行探测）
+     */
+    private void returnLease(Long productId, StockLease lease) {
+        synchronized (lease) {
+            int unused = lease.remaining.getAndSet(0);
+            lease.expireAt = 0;
+            if (unused > 0) {
+                redisStockManager.restore(productId, unused);
+                log.info("归还库存额度：商品ID={}, 数量={}", productId, unused);
+            }
+        }
+    }
+
+    /**
+     * 单个商品的本地额度
+     */
+    private static class StockLease {
+        private final AtomicInteger remaining = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        /**
+         * 累计已售数量（只增不重置，撤销时减）与其中已回写的部分（只在持有flushLock时读写）
+         */
+        private final LongAdder sold = new LongAdder();
+        private final Object flushLock = new Object();
+        private long flushed;
+
+        private volatile long expireAt;
+        private volatile long soldOutAt;
+
+        /**
+         * 售罄标记是否仍有效（超过额度有效期后允许再探测一次共享库存）
+         */
+        boolean isSoldOut(long ttl) {
+            long at = soldOutAt;
+            return at > 0 && System.currentTimeMillis() - at < ttl;
+        }
+
+        boolean tryAcquire(int quantity) {
+            while (true) {
+                int current = remaining.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.product;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * 商品服务集成测试基类：Testcontainers 启动 MySQL（导入商品表结构）和 Redis，没有Docker时跳过
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class ProductIntegrationTest {
+
+    private static final String REDIS_PASSWORD = "redis123";
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("ecommerce_product")
+            .withInitScript("db/product-schema.sql");
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine")
+            .withCommand("redis-server", "--requirepass", REDIS_PASSWORD)
+            .withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.redis.host", REDIS::getHost);
+        registry.add("spring.redis.port", () -> REDIS.getMappedPort(6379));
+        registry.add("spring.redis.password", () -> REDIS_PASSWORD);
+    }
+}
@@ -0,0 +1,146 @@
+package com.ecommerce.product.cache;
+
+import com.ecommerce.product.mapper.ProductMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 商品布隆过滤器：商品ID由模拟的Mapper按ID顺序分批返回，验证没有漏判、误判率接近目标值、增量同步新商品
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductBloomFilterTest {
+
+    private static final double FPP = 0.01;
+
+    private static final long PRODUCTS = 100_000;
+
+    /**
+     * 用于测量误判率的不存在ID数
+     */
+    private static final long PROBES = 200_000;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
+
+    @InjectMocks
+    private ProductBloomFilter filter;
+
+    /**
+     * 模拟库中的商品ID为 1..maxProductId
+     */
+    private long maxProductId = PRODUCTS;
+
+    /**
+     * 模拟 selectCount 返回的商品数（决定过滤器容量）
+     */
+    private long productCount = PRODUCTS;
+
+    @BeforeEach
+    void setUp() {
+        // 不启动后台同步线程，重建和同步由测试直接调用
+        ReflectionTestUtils.setField(filter, "enabled", false);
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(filter, "fpp", FPP);
+        filter.init();
+
+        lenient().when(productMapper.selectCount(any())).thenAnswer(invocation -> productCount);
+        lenient().when(productMapper.selectIdsAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return LongStream.rangeClosed(afterId + 1, Math.min(afterId + limit, maxProductId))
+                    .boxed().collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    void allowsEverythingBeforeBuilt() {
+        assertThat(filter.mightContain(PRODUCTS + 1)).isTrue();
+        assertThat(filter.getExpectedFpp()).isZero();
+    }
+
+    @Test
+    void hasNoFalseNegatives() {
+        ReflectionTestUtils.invokeMethod(filter, "rebuild");
+
+        for (long id = 1; id <= PRODUCTS; id++) {
+            assertThat(filter.mightContain(id)).as("商品%d", id).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsNearTargetAtCapacity() {
+        // 容量取 selectCount 的两倍：让实际加载的商品数正好等于容量
+        productCount = PRODUCTS / 2;
+        ReflectionTestUtils.invokeMethod(filter, "rebuild");
+
+        double measured = measureFalsePositiveRate();
+
+        assertThat(filter.getExpectedFpp()).isBetween(FPP * 0.8, FPP * 1.2);
+        assertThat(measured).isBetween(FPP * 0.7, FPP * 1.3);
+        assertThat(filter.getObservedFpp()).isEqualTo(measured);
+    }
+
+    @Test
+    void falsePositiveRateMatchesEstimateBelowCapacity() {
+        ReflectionTestUtils.invokeMethod(filter, "rebuild");
+
+        double measured = measureFalsePositiveRate();
+        double expected = filter.getExpectedFpp();
+
+        assertThat(expected).isLessThan(FPP);
+        assertThat(measured).isLessThan(FPP);
+        assertThat(Math.abs(measured - expected)).isLessThan(expected * 0.3 + 0.0005);
+    }
+
+    @Test
+    void syncAddsNewProductsAndEvictsTheirNullCache() {
+        ReflectionTestUtils.invokeMethod(filter, "rebuild");
+        maxProductId = PRODUCTS + 10;
+
+        ReflectionTestUtils.invokeMethod(filter, "sync");
+
+        List<Long> added = LongStream.rangeClosed(PRODUCTS + 1, PRODUCTS + 10).boxed().collect(Collectors.toList());
+        verify(productCache).evict(added);
+        for (Long id : added) {
+            assertThat(filter.mightContain(id)).isTrue();
+        }
+    }
+
+    /**
+     * 用库中不存在的ID探测，放行的按误判记录（与商品查询中缓存和数据库都未命中时一致）
+     */
+    private double measureFalsePositiveRate() {
+        long passed = 0;
+        for (long id = maxProductId + 1; id <= maxProductId + PROBES; id++) {
+            if (filter.mightContain(id)) {
+                filter.recordFalsePositive();
+                passed++;
+            }
+        }
+        return (double) passed / PROBES;
+    }
+}
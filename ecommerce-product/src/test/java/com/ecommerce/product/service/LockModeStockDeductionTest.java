@@ -0,0 +1,15 @@
+package com.ecommerce.product.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * 分布式锁模式并发扣减
+ */
+@TestPropertySource(properties = "product.stock.deduct-mode=lock")
+class LockModeStockDeductionTest extends StockDeductionConcurrencyTest {
+
+    @Override
+    protected boolean expectSoldOut() {
+        return false;
+    }
+}
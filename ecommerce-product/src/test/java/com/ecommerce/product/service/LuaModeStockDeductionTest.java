@@ -0,0 +1,15 @@
+package com.ecommerce.product.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Lua脚本无锁模式并发扣减
+ */
+@TestPropertySource(properties = "product.stock.deduct-mode=lua")
+class LuaModeStockDeductionTest extends StockDeductionConcurrencyTest {
+
+    @Override
+    protected boolean expectSoldOut() {
+        return true;
+    }
+}
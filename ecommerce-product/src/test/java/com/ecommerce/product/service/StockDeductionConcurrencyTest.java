@@ -0,0 +1,111 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.common.constant.RedisKeyConstant;
+import com.ecommerce.common.exception.BusinessException;
+import com.ecommerce.product.ProductIntegrationTest;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.mapper.ProductMapper;
+import com.ecommerce.product.stock.RedisStockManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 并发扣减库存不超卖：大量线程同时扣减同一商品，扣减请求总数远大于库存，
+ * 结束后Redis库存和数据库库存都不能小于0，且成功扣减数量与两边库存的减少量一致
+ */
+abstract class StockDeductionConcurrencyTest extends ProductIntegrationTest {
+
+    private static final int STOCK = 100;
+
+    private static final int THREADS = 32;
+
+    private static final int ATTEMPTS = 300;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private RedisStockManager redisStockManager;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 当前扣减模式下请求数足够时是否一定能卖光（加锁模式获取锁失败会直接拒绝）
+     */
+    protected abstract boolean expectSoldOut();
+
+    @Test
+    void concurrentDeductionNeverOversells() throws Exception {
+        Long productId = createProduct();
+        redisStockManager.initStock(productId, STOCK);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>(ATTEMPTS);
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        if (productService.deductStock(productId, 1)) {
+                            sold.incrementAndGet();
+                        }
+                    } catch (BusinessException e) {
+                        // 库存不足或获取锁失败
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Product product = productMapper.selectById(productId);
+        Integer redisStock = (Integer) redisTemplate.opsForValue().get(RedisKeyConstant.buildStockKey(productId));
+
+        assertThat(sold.get() + rejected.get()).isEqualTo(ATTEMPTS);
+        assertThat(product.getStock()).isGreaterThanOrEqualTo(0);
+        assertThat(redisStock).isNotNull().isGreaterThanOrEqualTo(0);
+        assertThat(STOCK - product.getStock()).isEqualTo(sold.get());
+        assertThat(product.getSales()).isEqualTo(sold.get());
+        assertThat(redisStock).isEqualTo(product.getStock());
+        if (expectSoldOut()) {
+            assertThat(sold.get()).isEqualTo(STOCK);
+        }
+    }
+
+    private Long createProduct() {
+        Product product = new Product();
+        product.setName("并发测试商品");
+        product.setPrice(new BigDecimal("9.90"));
+        product.setStock(STOCK);
+        product.setSales(0);
+        product.setStatus(1);
+        productMapper.insert(product);
+        return product.getId();
+    }
+}
@@ -0,0 +1,34 @@
+-- 商品服务测试库表结构（与 docker/mysql/init/init.sql 保持一致）
+
+CREATE TABLE `tb_product` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `name` varchar(100) NOT NULL COMMENT '商品名称',
+  `title` varchar(200) DEFAULT NULL COMMENT '商品标题',
+  `description` text COMMENT '商品描述',
+  `category_id` bigint DEFAULT NULL COMMENT '分类ID',
+  `brand` varchar(50) DEFAULT NULL COMMENT '品牌',
+  `price` decimal(10,2) NOT NULL COMMENT '价格',
+  `stock` int NOT NULL DEFAULT '0' COMMENT '库存数量',
+  `sales` int DEFAULT '0' COMMENT '销量',
+  `main_image` varchar(200) DEFAULT NULL COMMENT '主图URL',
+  `images` text COMMENT '商品图片（JSON数组）',
+  `status` tinyint DEFAULT '1' COMMENT '商品状态：0-下架 1-上架',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  `deleted` tinyint DEFAULT '0' COMMENT '逻辑删除：0-未删除 1-已删除',
+  PRIMARY KEY (`id`),
+  KEY `idx_category` (`category_id`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品表';
+
+
+CREATE TABLE `tb_product_stock_segment` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `product_id` bigint NOT NULL COMMENT '商品ID',
+  `segment_no` int NOT NULL COMMENT '分段编号',
+  `stock` int NOT NULL DEFAULT '0' COMMENT '分段库存',
+  `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_product_segment` (`product_id`, `segment_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='热点商品分段库存表';